@@ -15,10 +15,18 @@
 
 package org.springframework.cloud.stream.app.file;
 
+import java.io.File;
+import java.time.Duration;
+
 import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.stream.app.file.scanner.PickupOrder;
+import org.springframework.expression.Expression;
 import org.springframework.validation.annotation.Validated;
 
 /**
@@ -32,13 +40,24 @@ public class FileConsumerProperties {
 	/**
 	 * The FileReadingMode to use for file reading sources.
 	 * Values are 'ref' - The File object,
-	 * 'lines' - a message per line, or
-	 * 'contents' - the contents as bytes.
+	 * 'lines' - a message per line,
+	 * 'contents' - the contents as bytes,
+	 * 'chunks' - the contents as fixed-size byte chunks read from a memory-mapped file,
+	 * 'batchedLines' - a message per batch of lines,
+	 * 'tail' - a message per line appended since the file has last been read,
+	 * resuming from the offset stored in the metadata store; the file list filter must accept the modified files
+	 * again, as the one of FileUtils.directoryScanner() does, and the charset must encode '\n' as a single byte,
+	 * 'fixedLengthRecords' - a message per fixed-length binary record,
+	 * 'lengthPrefixedRecords' - a message per binary record preceded by its length,
+	 * 'delimitedRecords' - a message per text record separated by 'recordDelimiter', or
+	 * 'stream' - an InputStream opening the file on the first read and closing it at the end,
+	 * for consumers in the same process.
 	 */
 	private FileReadingMode mode = FileReadingMode.contents;
 
 	/**
-	 * 	Set to true to emit start of file/end of file marker messages before/after the data.
+	 * 	Set to true to emit start of file/end of file marker messages before/after the data;
+	 * 	the end of file marker also reports the bytes read, lines, decode and wall times, and lines per second.
 	 * 	Only valid with FileReadingMode 'lines'.
 	 */
 	private Boolean withMarkers = null;
@@ -49,6 +68,240 @@ public class FileConsumerProperties {
 	 */
 	private boolean markersJson = true;
 
+	/**
+	 * When 'withMarkers == true', set to true to produce them as compact binary byte arrays,
+	 * decoded by FileMarkerCodec, instead of FileSplitter.FileMarker objects or JSON.
+	 */
+	private boolean markersBinary;
+
+	/**
+	 * The size in bytes of each emitted chunk.
+	 * Only valid with FileReadingMode 'chunks'.
+	 */
+	private int chunkSize = 1024 * 1024;
+
+	/**
+	 * The number of newline-aligned byte ranges of a file decoded in parallel.
+	 * Only valid with FileReadingMode 'lines' and no markers.
+	 */
+	private int parallelism = 1;
+
+	/**
+	 * The nominal size in bytes of the ranges decoded in parallel when 'parallelism' is greater than 1.
+	 */
+	private int rangeSize = 8 * 1024 * 1024;
+
+	/**
+	 * The maximum number of lines in a batch.
+	 * Only valid with FileReadingMode 'batchedLines'.
+	 */
+	private int batchMaxLines = 1000;
+
+	/**
+	 * The maximum size of a batch, in bytes of its lines in the file charset; a line which would take a batch
+	 * over it starts the next batch, and a single larger line is sent alone.
+	 * Only valid with FileReadingMode 'batchedLines'.
+	 */
+	private long batchMaxBytes = 1024 * 1024;
+
+	/**
+	 * The maximum time to accumulate lines into a batch before emitting it; checked as lines are read,
+	 * so a partial batch of an input blocking between lines waits for the next line or the end of the input.
+	 * Only valid with FileReadingMode 'batchedLines'.
+	 */
+	private Duration batchFlushTimeout = Duration.ofSeconds(1);
+
+	/**
+	 * The length in bytes of the records.
+	 * Only valid with FileReadingMode 'fixedLengthRecords'.
+	 */
+	private int recordLength;
+
+	/**
+	 * The length in bytes of the unsigned record length prefix: 1, 2, 4 or 8.
+	 * Only valid with FileReadingMode 'lengthPrefixedRecords'.
+	 */
+	private int recordPrefixLength = 4;
+
+	/**
+	 * Set to true if the record length prefix is little-endian rather than big-endian.
+	 * Only valid with FileReadingMode 'lengthPrefixedRecords'.
+	 */
+	private boolean recordPrefixLittleEndian;
+
+	/**
+	 * The delimiter separating the records, e.g. the record separator character or '</item>'.
+	 * Only valid with FileReadingMode 'delimitedRecords'.
+	 */
+	private String recordDelimiter;
+
+	/**
+	 * Set to true if 'recordDelimiter' is a regular expression rather than a literal delimiter.
+	 */
+	private boolean recordDelimiterRegex;
+
+	/**
+	 * Set to true to skip the files whose content has already been processed under another path,
+	 * recording the SHA-256 digests of the contents in the metadata store; with FileReadingMode 'contents',
+	 * the contents read into memory are digested there, otherwise the files are read once more beforehand.
+	 * The record is removed if the processing of the file fails on the thread which digested it.
+	 * Not valid with FileReadingMode 'tail'.
+	 */
+	private boolean deduplicateContents;
+
+	/**
+	 * The number of files processed concurrently, each on a single thread so its data keeps its order;
+	 * the 'file_partitionKey' header carries the file path, to partition the output on.
+	 * Not valid with FileReadingMode 'tail' or readAhead.
+	 */
+	private int concurrency = 1;
+
+	/**
+	 * The time the shutdown waits for the files in flight on the concurrency or readAhead threads.
+	 */
+	private Duration processingShutdownTimeout = Duration.ofSeconds(30);
+
+	/**
+	 * The number of files read ahead by a background thread while the current one is processed
+	 * on another thread; 0 to disable.
+	 * Not valid with FileReadingMode 'ref' or 'tail' or a parallelism greater than 1.
+	 */
+	private int readAhead;
+
+	/**
+	 * The maximum number of bytes read ahead per file; the rest of the file is read on demand.
+	 */
+	private int readAheadBufferSize = 4 * 1024 * 1024;
+
+	/**
+	 * The maximum number of directory entries read per poll, the next poll resuming the listing
+	 * where the previous one stopped; 0 to list the whole directory on each poll.
+	 */
+	private int maxEntriesPerPoll;
+
+	/**
+	 * The order in which the files of a poll are picked up: 'directory' (the listing order),
+	 * 'oldest', 'newest', 'smallest', 'largest', 'name' or 'priority' (highest 'pickupPriorityExpression' first).
+	 * The file source must be created with the FileUtils.receptionOrder() comparator, otherwise the files
+	 * are received in the order of their paths.
+	 */
+	private PickupOrder pickupOrder = PickupOrder.directory;
+
+	/**
+	 * A SpEL expression evaluated against each File, scoring its priority when pickupOrder is 'priority'.
+	 */
+	private Expression pickupPriorityExpression;
+
+	/**
+	 * The maximum number of files picked up per poll, the first ones in pickupOrder; the others
+	 * are left for a later poll. 0 for no limit.
+	 */
+	private int maxFilesPerPoll;
+
+	/**
+	 * Set to true to scan the directory with a WatchService, only listing the entries
+	 * created or modified since the previous poll, instead of the whole directory.
+	 */
+	private boolean watch;
+
+	/**
+	 * The interval between two full listings of a watched directory, catching up with missed events.
+	 */
+	private Duration watchReconciliationInterval = Duration.ofMinutes(1);
+
+	/**
+	 * The time a poll of a watched directory waits for an event when none is pending.
+	 */
+	private Duration watchEventWaitTimeout = Duration.ZERO;
+
+	/**
+	 * The expected number of processed files recorded in the metadata store, for sizing the
+	 * Bloom filter in front of it.
+	 */
+	private long processedIndexExpectedEntries = 1_000_000;
+
+	/**
+	 * The probability of a new file being taken for a processed one by the Bloom filter.
+	 */
+	private double processedIndexFalsePositiveProbability = 1e-6;
+
+	/**
+	 * Set to true to check the metadata store for the files found in the Bloom filter as well, so no new file is
+	 * taken for a processed one, at the cost of a metadata store round trip per file and poll.
+	 */
+	private boolean processedIndexVerifyHits;
+
+	/**
+	 * Set to true for each instance of a scaled-out source to only pick up its share of the files,
+	 * assigned by rendezvous hashing of the file names over 'spring.cloud.stream.instanceCount'.
+	 */
+	private boolean partitionByInstance;
+
+	/**
+	 * Set to true to poll every 'pollMinInterval' while files are found, and back off exponentially
+	 * up to 'pollMaxInterval' while polls come back empty. Only applied by the sources whose poller is created
+	 * with FileUtils.poller(), which the applications, including the remote file sources, must opt in to.
+	 */
+	private boolean adaptivePolling;
+
+	/**
+	 * The interval between polls while files are found, with adaptivePolling.
+	 */
+	private Duration pollMinInterval = Duration.ofSeconds(1);
+
+	/**
+	 * The interval the backoff of idle polls stops at, with adaptivePolling.
+	 */
+	private Duration pollMaxInterval = Duration.ofMinutes(1);
+
+	/**
+	 * The factor the interval is multiplied by after an empty poll, with adaptivePolling.
+	 */
+	private double pollBackoffMultiplier = 2;
+
+	/**
+	 * Set to true to transparently decompress gzip, zstd, lz4 and bzip2 files,
+	 * detected by file name extension or magic bytes. Not applied with FileReadingMode 'ref' or 'tail'.
+	 */
+	private boolean decompress;
+
+	/**
+	 * The size in bytes above which a file content is put in the claim check store and only
+	 * its key is sent, in the 'file_claimCheck' header; 0 to always send the content.
+	 * Only valid with FileReadingMode 'contents'.
+	 */
+	private long claimCheckThreshold;
+
+	/**
+	 * The directory of the claim check store; must be accessible to the consumers.
+	 */
+	private File claimCheckDirectory = new File(System.getProperty("java.io.tmpdir"), "file-claim-check");
+
+	/**
+	 * How long the claim-checked contents are kept in the store after they were last stored, e.g. '1d';
+	 * unset to keep them until removed externally. Must exceed the time the consumers may take to load them:
+	 * identical contents share one stored object, so the consumers cannot safely remove them once loaded.
+	 */
+	private Duration claimCheckRetention;
+
+	/**
+	 * Set to true to read the contents into pooled direct buffers, emitted as read-only ByteBuffer payloads
+	 * instead of a new byte array per file, and returned to the pool once sent to the output channel,
+	 * provided it has a BufferReleasingChannelInterceptor.
+	 * Only valid with FileReadingMode 'contents', without decompression, claim check or read-ahead.
+	 */
+	private boolean pooledBuffers;
+
+	/**
+	 * The size in bytes of the largest pooled buffer; larger files are read into a buffer which is not pooled.
+	 */
+	private int pooledBufferMaxSize = 1024 * 1024;
+
+	/**
+	 * The maximum total size in bytes of the buffers kept in the pool.
+	 */
+	private long pooledBufferMaxTotal = 64 * 1024 * 1024;
+
 	@NotNull
 	public FileReadingMode getMode() {
 		return this.mode;
@@ -74,9 +327,412 @@ public class FileConsumerProperties {
 		this.markersJson = markersJson;
 	}
 
+	public boolean isMarkersBinary() {
+		return this.markersBinary;
+	}
+
+	public void setMarkersBinary(boolean markersBinary) {
+		this.markersBinary = markersBinary;
+	}
+
+	@Min(1)
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	public void setChunkSize(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	@Min(1)
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	@Min(1)
+	public int getRangeSize() {
+		return this.rangeSize;
+	}
+
+	public void setRangeSize(int rangeSize) {
+		this.rangeSize = rangeSize;
+	}
+
+	@Min(1)
+	public int getBatchMaxLines() {
+		return this.batchMaxLines;
+	}
+
+	public void setBatchMaxLines(int batchMaxLines) {
+		this.batchMaxLines = batchMaxLines;
+	}
+
+	@Min(1)
+	public long getBatchMaxBytes() {
+		return this.batchMaxBytes;
+	}
+
+	public void setBatchMaxBytes(long batchMaxBytes) {
+		this.batchMaxBytes = batchMaxBytes;
+	}
+
+	@NotNull
+	public Duration getBatchFlushTimeout() {
+		return this.batchFlushTimeout;
+	}
+
+	public void setBatchFlushTimeout(Duration batchFlushTimeout) {
+		this.batchFlushTimeout = batchFlushTimeout;
+	}
+
+	public int getRecordLength() {
+		return this.recordLength;
+	}
+
+	public void setRecordLength(int recordLength) {
+		this.recordLength = recordLength;
+	}
+
+	public int getRecordPrefixLength() {
+		return this.recordPrefixLength;
+	}
+
+	public void setRecordPrefixLength(int recordPrefixLength) {
+		this.recordPrefixLength = recordPrefixLength;
+	}
+
+	public boolean isRecordPrefixLittleEndian() {
+		return this.recordPrefixLittleEndian;
+	}
+
+	public void setRecordPrefixLittleEndian(boolean recordPrefixLittleEndian) {
+		this.recordPrefixLittleEndian = recordPrefixLittleEndian;
+	}
+
+	public String getRecordDelimiter() {
+		return this.recordDelimiter;
+	}
+
+	public void setRecordDelimiter(String recordDelimiter) {
+		this.recordDelimiter = recordDelimiter;
+	}
+
+	public boolean isRecordDelimiterRegex() {
+		return this.recordDelimiterRegex;
+	}
+
+	public void setRecordDelimiterRegex(boolean recordDelimiterRegex) {
+		this.recordDelimiterRegex = recordDelimiterRegex;
+	}
+
+	public boolean isDeduplicateContents() {
+		return this.deduplicateContents;
+	}
+
+	public void setDeduplicateContents(boolean deduplicateContents) {
+		this.deduplicateContents = deduplicateContents;
+	}
+
+	@Min(1)
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	@NotNull
+	public Duration getProcessingShutdownTimeout() {
+		return this.processingShutdownTimeout;
+	}
+
+	public void setProcessingShutdownTimeout(Duration processingShutdownTimeout) {
+		this.processingShutdownTimeout = processingShutdownTimeout;
+	}
+
+	@Min(0)
+	public int getReadAhead() {
+		return this.readAhead;
+	}
+
+	public void setReadAhead(int readAhead) {
+		this.readAhead = readAhead;
+	}
+
+	@Min(1)
+	public int getReadAheadBufferSize() {
+		return this.readAheadBufferSize;
+	}
+
+	public void setReadAheadBufferSize(int readAheadBufferSize) {
+		this.readAheadBufferSize = readAheadBufferSize;
+	}
+
+	@Min(0)
+	public int getMaxEntriesPerPoll() {
+		return this.maxEntriesPerPoll;
+	}
+
+	public void setMaxEntriesPerPoll(int maxEntriesPerPoll) {
+		this.maxEntriesPerPoll = maxEntriesPerPoll;
+	}
+
+	@NotNull
+	public PickupOrder getPickupOrder() {
+		return this.pickupOrder;
+	}
+
+	public void setPickupOrder(PickupOrder pickupOrder) {
+		this.pickupOrder = pickupOrder;
+	}
+
+	public Expression getPickupPriorityExpression() {
+		return this.pickupPriorityExpression;
+	}
+
+	public void setPickupPriorityExpression(Expression pickupPriorityExpression) {
+		this.pickupPriorityExpression = pickupPriorityExpression;
+	}
+
+	@Min(0)
+	public int getMaxFilesPerPoll() {
+		return this.maxFilesPerPoll;
+	}
+
+	public void setMaxFilesPerPoll(int maxFilesPerPoll) {
+		this.maxFilesPerPoll = maxFilesPerPoll;
+	}
+
+	public boolean isWatch() {
+		return this.watch;
+	}
+
+	public void setWatch(boolean watch) {
+		this.watch = watch;
+	}
+
+	@NotNull
+	public Duration getWatchReconciliationInterval() {
+		return this.watchReconciliationInterval;
+	}
+
+	public void setWatchReconciliationInterval(Duration watchReconciliationInterval) {
+		this.watchReconciliationInterval = watchReconciliationInterval;
+	}
+
+	@NotNull
+	public Duration getWatchEventWaitTimeout() {
+		return this.watchEventWaitTimeout;
+	}
+
+	public void setWatchEventWaitTimeout(Duration watchEventWaitTimeout) {
+		this.watchEventWaitTimeout = watchEventWaitTimeout;
+	}
+
+	@Min(1)
+	public long getProcessedIndexExpectedEntries() {
+		return this.processedIndexExpectedEntries;
+	}
+
+	public void setProcessedIndexExpectedEntries(long processedIndexExpectedEntries) {
+		this.processedIndexExpectedEntries = processedIndexExpectedEntries;
+	}
+
+	@DecimalMin(value = "0", inclusive = false)
+	@DecimalMax(value = "1", inclusive = false)
+	public double getProcessedIndexFalsePositiveProbability() {
+		return this.processedIndexFalsePositiveProbability;
+	}
+
+	public void setProcessedIndexFalsePositiveProbability(double processedIndexFalsePositiveProbability) {
+		this.processedIndexFalsePositiveProbability = processedIndexFalsePositiveProbability;
+	}
+
+	public boolean isProcessedIndexVerifyHits() {
+		return this.processedIndexVerifyHits;
+	}
+
+	public void setProcessedIndexVerifyHits(boolean processedIndexVerifyHits) {
+		this.processedIndexVerifyHits = processedIndexVerifyHits;
+	}
+
+	public boolean isPartitionByInstance() {
+		return this.partitionByInstance;
+	}
+
+	public void setPartitionByInstance(boolean partitionByInstance) {
+		this.partitionByInstance = partitionByInstance;
+	}
+
+	public boolean isAdaptivePolling() {
+		return this.adaptivePolling;
+	}
+
+	public void setAdaptivePolling(boolean adaptivePolling) {
+		this.adaptivePolling = adaptivePolling;
+	}
+
+	@NotNull
+	public Duration getPollMinInterval() {
+		return this.pollMinInterval;
+	}
+
+	public void setPollMinInterval(Duration pollMinInterval) {
+		this.pollMinInterval = pollMinInterval;
+	}
+
+	@NotNull
+	public Duration getPollMaxInterval() {
+		return this.pollMaxInterval;
+	}
+
+	public void setPollMaxInterval(Duration pollMaxInterval) {
+		this.pollMaxInterval = pollMaxInterval;
+	}
+
+	@DecimalMin("1.0")
+	public double getPollBackoffMultiplier() {
+		return this.pollBackoffMultiplier;
+	}
+
+	public void setPollBackoffMultiplier(double pollBackoffMultiplier) {
+		this.pollBackoffMultiplier = pollBackoffMultiplier;
+	}
+
+	public boolean isDecompress() {
+		return this.decompress;
+	}
+
+	public void setDecompress(boolean decompress) {
+		this.decompress = decompress;
+	}
+
+	@Min(0)
+	public long getClaimCheckThreshold() {
+		return this.claimCheckThreshold;
+	}
+
+	public void setClaimCheckThreshold(long claimCheckThreshold) {
+		this.claimCheckThreshold = claimCheckThreshold;
+	}
+
+	@NotNull
+	public File getClaimCheckDirectory() {
+		return this.claimCheckDirectory;
+	}
+
+	public void setClaimCheckDirectory(File claimCheckDirectory) {
+		this.claimCheckDirectory = claimCheckDirectory;
+	}
+
+	public Duration getClaimCheckRetention() {
+		return this.claimCheckRetention;
+	}
+
+	public void setClaimCheckRetention(Duration claimCheckRetention) {
+		this.claimCheckRetention = claimCheckRetention;
+	}
+
+	public boolean isPooledBuffers() {
+		return this.pooledBuffers;
+	}
+
+	public void setPooledBuffers(boolean pooledBuffers) {
+		this.pooledBuffers = pooledBuffers;
+	}
+
+	@Min(1)
+	public int getPooledBufferMaxSize() {
+		return this.pooledBufferMaxSize;
+	}
+
+	public void setPooledBufferMaxSize(int pooledBufferMaxSize) {
+		this.pooledBufferMaxSize = pooledBufferMaxSize;
+	}
+
+	@Min(0)
+	public long getPooledBufferMaxTotal() {
+		return this.pooledBufferMaxTotal;
+	}
+
+	public void setPooledBufferMaxTotal(long pooledBufferMaxTotal) {
+		this.pooledBufferMaxTotal = pooledBufferMaxTotal;
+	}
+
 	@AssertTrue(message = "withMarkers can only be supplied when FileReadingMode is 'lines'")
 	public boolean isWithMarkersValid() {
 		return this.withMarkers == null || FileReadingMode.lines == this.mode;
 	}
 
+	@AssertTrue(message = "parallelism can only be greater than 1 when FileReadingMode is 'lines' without markers")
+	public boolean isParallelismValid() {
+		return this.parallelism == 1 || (FileReadingMode.lines == this.mode && !Boolean.TRUE.equals(this.withMarkers));
+	}
+
+	@AssertTrue(message = "decompress cannot be combined with a parallelism greater than 1")
+	public boolean isDecompressValid() {
+		return !this.decompress || this.parallelism == 1;
+	}
+
+	@AssertTrue(message = "claimCheckThreshold can only be supplied when FileReadingMode is 'contents'")
+	public boolean isClaimCheckValid() {
+		return this.claimCheckThreshold == 0 || FileReadingMode.contents == this.mode;
+	}
+
+	@AssertTrue(message = "recordLength must be greater than 0 when FileReadingMode is 'fixedLengthRecords'")
+	public boolean isRecordLengthValid() {
+		return FileReadingMode.fixedLengthRecords != this.mode || this.recordLength > 0;
+	}
+
+	@AssertTrue(message = "recordDelimiter must not be empty when FileReadingMode is 'delimitedRecords'")
+	public boolean isRecordDelimiterValid() {
+		return FileReadingMode.delimitedRecords != this.mode
+				|| (this.recordDelimiter != null && !this.recordDelimiter.isEmpty());
+	}
+
+	@AssertTrue(message = "recordPrefixLength must be 1, 2, 4 or 8")
+	public boolean isRecordPrefixLengthValid() {
+		return this.recordPrefixLength == 1 || this.recordPrefixLength == 2
+				|| this.recordPrefixLength == 4 || this.recordPrefixLength == 8;
+	}
+
+	@AssertTrue(message = "pooledBuffers can only be used with FileReadingMode 'contents', "
+			+ "without decompress, claimCheckThreshold or readAhead")
+	public boolean isPooledBuffersValid() {
+		return !this.pooledBuffers || (FileReadingMode.contents == this.mode && !this.decompress
+				&& this.claimCheckThreshold == 0 && this.readAhead == 0);
+	}
+
+	@AssertTrue(message = "deduplicateContents cannot be used with FileReadingMode 'tail'")
+	public boolean isDeduplicateContentsValid() {
+		return !this.deduplicateContents || FileReadingMode.tail != this.mode;
+	}
+
+	@AssertTrue(message = "concurrency cannot be greater than 1 with FileReadingMode 'tail' or readAhead")
+	public boolean isConcurrencyValid() {
+		return this.concurrency == 1 || (FileReadingMode.tail != this.mode && this.readAhead == 0);
+	}
+
+	@AssertTrue(message = "pickupPriorityExpression must be supplied when pickupOrder is 'priority'")
+	public boolean isPickupPriorityExpressionValid() {
+		return this.pickupOrder != PickupOrder.priority || this.pickupPriorityExpression != null;
+	}
+
+	@AssertTrue(message = "pollMaxInterval must not be shorter than pollMinInterval")
+	public boolean isPollIntervalsValid() {
+		return this.pollMinInterval == null || this.pollMaxInterval == null
+				|| this.pollMaxInterval.compareTo(this.pollMinInterval) >= 0;
+	}
+
+	@AssertTrue(message = "readAhead cannot be used with FileReadingMode 'ref' or 'tail' or a parallelism greater than 1")
+	public boolean isReadAheadValid() {
+		return this.readAhead == 0
+				|| (FileReadingMode.ref != this.mode && FileReadingMode.tail != this.mode && this.parallelism == 1);
+	}
+
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file;
+
+import org.springframework.integration.file.FileHeaders;
+
+/**
+ * Pre-defined header names for the messages emitted by the file reading modes,
+ * in addition to the ones from {@link FileHeaders}.
+ *
+ * @since 3.0
+ */
+public abstract class FileReadingHeaders {
+
+	/**
+	 * The byte offset in the file of the data carried by the message.
+	 */
+	public static final String OFFSET = FileHeaders.PREFIX + "offset";
+
+	/**
+	 * The index of the newline-aligned byte range of the file the line has been read from.
+	 */
+	public static final String RANGE_INDEX = FileHeaders.PREFIX + "rangeIndex";
+
+	/**
+	 * The key of the file content in the claim check store, carried instead of the content.
+	 */
+	public static final String CLAIM_CHECK = FileHeaders.PREFIX + "claimCheck";
+
+	/**
+	 * The absolute path of the file the data has been read from, to partition the output on,
+	 * so the data of a file keeps its order when several files are processed concurrently.
+	 */
+	public static final String PARTITION_KEY = FileHeaders.PREFIX + "partitionKey";
+
+}
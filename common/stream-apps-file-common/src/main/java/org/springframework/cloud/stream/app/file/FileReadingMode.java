@@ -26,5 +26,12 @@ package org.springframework.cloud.stream.app.file;
 public enum FileReadingMode {
 	ref,
 	lines,
-	contents;
+	contents,
+	chunks,
+	batchedLines,
+	tail,
+	fixedLengthRecords,
+	lengthPrefixedRecords,
+	delimitedRecords,
+	stream;
 }
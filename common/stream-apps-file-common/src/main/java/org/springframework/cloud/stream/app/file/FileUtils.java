@@ -16,13 +16,84 @@
 
 package org.springframework.cloud.stream.app.file;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
+import reactor.core.publisher.Flux;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.cloud.stream.app.file.buffer.BufferReleasingChannelInterceptor;
+import org.springframework.cloud.stream.app.file.buffer.ByteBufferMessageConverter;
+import org.springframework.cloud.stream.app.file.buffer.DirectBufferPool;
+import org.springframework.cloud.stream.app.file.buffer.PooledContentsTransformer;
+import org.springframework.cloud.stream.app.file.claimcheck.ClaimCheckTransformer;
+import org.springframework.cloud.stream.app.file.claimcheck.ContentAddressedFileStore;
+import org.springframework.cloud.stream.app.file.compression.DecompressingTransformer;
+import org.springframework.cloud.stream.app.file.filter.BloomAcceptOnceFileListFilter;
+import org.springframework.cloud.stream.app.file.filter.DuplicateContentMessageSelector;
+import org.springframework.cloud.stream.app.file.filter.PartitionedFileListFilter;
+import org.springframework.cloud.stream.app.file.poller.BackoffReceiveMessageAdvice;
+import org.springframework.cloud.stream.app.file.readahead.ReadAheadTransformer;
+import org.springframework.cloud.stream.app.file.scanner.PickupOrder;
+import org.springframework.cloud.stream.app.file.scanner.StreamingDirectoryScanner;
+import org.springframework.cloud.stream.app.file.scanner.WatchingDirectoryScanner;
+import org.springframework.cloud.stream.app.file.splitter.BatchingFileSplitter;
+import org.springframework.cloud.stream.app.file.splitter.DelimitedRecordSplitter;
+import org.springframework.cloud.stream.app.file.splitter.FileChunkSplitter;
+import org.springframework.cloud.stream.app.file.splitter.FixedLengthRecordSplitter;
+import org.springframework.cloud.stream.app.file.splitter.LengthPrefixedRecordSplitter;
+import org.springframework.cloud.stream.app.file.splitter.LineMessageSplitter;
+import org.springframework.cloud.stream.app.file.splitter.ParallelFileSplitter;
+import org.springframework.cloud.stream.app.file.splitter.StatisticsFileSplitter;
+import org.springframework.cloud.stream.app.file.splitter.TailingFileSplitter;
+import org.springframework.cloud.stream.app.file.stream.DeferredStreamTransformer;
+import org.springframework.cloud.stream.app.file.writer.CompressingRollListener;
+import org.springframework.cloud.stream.app.file.writer.FsyncPolicy;
+import org.springframework.cloud.stream.app.file.writer.RollingFileWritingMessageHandler;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.integration.StaticMessageHeaderAccessor;
 import org.springframework.integration.dsl.IntegrationFlowBuilder;
-import org.springframework.integration.file.splitter.FileSplitter;
+import org.springframework.integration.dsl.MessageChannels;
+import org.springframework.integration.dsl.PollerSpec;
+import org.springframework.integration.dsl.Pollers;
+import org.springframework.integration.expression.ExpressionUtils;
+import org.springframework.integration.file.DirectoryScanner;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.filters.AcceptOnceFileListFilter;
+import org.springframework.integration.file.filters.CompositeFileListFilter;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.IgnoreHiddenFileListFilter;
 import org.springframework.integration.file.transformer.FileToByteArrayTransformer;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.integration.support.MessageBuilder;
 import org.springframework.integration.transformer.StreamTransformer;
+import org.springframework.integration.util.DynamicPeriodicTrigger;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
 
 /**
@@ -33,6 +104,8 @@ import org.springframework.util.MimeTypeUtils;
  */
 public class FileUtils {
 
+	private static final int REACTIVE_BUFFER_SIZE = 64 * 1024;
+
 	/**
 	 * Enhance an {@link IntegrationFlowBuilder} to add flow snippets, depending on
 	 * {@link FileConsumerProperties}.
@@ -42,20 +115,161 @@ public class FileUtils {
 	 */
 	public static IntegrationFlowBuilder enhanceFlowForReadingMode(IntegrationFlowBuilder flowBuilder,
 			FileConsumerProperties fileConsumerProperties) {
+
+		return enhanceFlowForReadingMode(flowBuilder, fileConsumerProperties, null);
+	}
+
+	/**
+	 * Enhance an {@link IntegrationFlowBuilder} to add flow snippets, depending on
+	 * {@link FileConsumerProperties}, with a {@link ConcurrentMetadataStore} for the
+	 * reading modes keeping state across restarts (e.g. 'tail') and the content deduplication.
+	 * <p>
+	 * With {@code pooledBuffers}, the pooled buffers are returned to the pool by a
+	 * {@link BufferReleasingChannelInterceptor} the application adds to its output channel,
+	 * and sent to a binder as {@code byte[]} by a {@link ByteBufferMessageConverter}.
+	 * @param flowBuilder the flow builder.
+	 * @param fileConsumerProperties the properties.
+	 * @param metadataStore the metadata store; may be null if not required by the mode or deduplication.
+	 * @return the updated flow builder.
+	 */
+	public static IntegrationFlowBuilder enhanceFlowForReadingMode(IntegrationFlowBuilder flowBuilder,
+			FileConsumerProperties fileConsumerProperties, @Nullable ConcurrentMetadataStore metadataStore) {
+
+		boolean decompress = fileConsumerProperties.isDecompress();
+		DuplicateContentMessageSelector duplicateContentSelector = null;
+		if (fileConsumerProperties.isDeduplicateContents()) {
+			if (metadataStore == null) {
+				throw new IllegalArgumentException("A metadata store is required to deduplicate the contents.");
+			}
+			duplicateContentSelector = new DuplicateContentMessageSelector(metadataStore);
+		}
+		int readAhead = fileConsumerProperties.getReadAhead();
+		// the contents read into memory are digested there rather than reading the files twice
+		boolean deduplicateInMemory = duplicateContentSelector != null
+				&& fileConsumerProperties.getMode() == FileReadingMode.contents
+				&& fileConsumerProperties.getClaimCheckThreshold() <= 0
+				&& (fileConsumerProperties.isPooledBuffers() || (!decompress && readAhead == 0));
+		if (readAhead > 0) {
+			if (duplicateContentSelector != null && !deduplicateInMemory) {
+				deduplicateContents(flowBuilder, duplicateContentSelector);
+			}
+			flowBuilder.transform(new ReadAheadTransformer(readAhead, fileConsumerProperties.getReadAheadBufferSize()))
+					.channel(readAheadProcessingChannel(fileConsumerProperties));
+		}
+		int concurrency = fileConsumerProperties.getConcurrency();
+		if (concurrency > 1) {
+			flowBuilder.enrichHeaders(headers -> headers
+					.headerFunction(FileReadingHeaders.PARTITION_KEY, FileUtils::partitionKey))
+					.channel(concurrentFilesChannel(concurrency, fileConsumerProperties));
+		}
+		if (duplicateContentSelector != null && readAhead == 0 && !deduplicateInMemory) {
+			// after the hand-off to the concurrent threads, if any, so the files are hashed in parallel
+			deduplicateContents(flowBuilder, duplicateContentSelector);
+		}
 		switch (fileConsumerProperties.getMode()) {
 		case contents:
 			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
-					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE))
-					.transform(new FileToByteArrayTransformer());
+					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(true));
+			}
+			if (fileConsumerProperties.getClaimCheckThreshold() > 0) {
+				flowBuilder.transform(claimCheckTransformer(fileConsumerProperties));
+			}
+			else if (fileConsumerProperties.isPooledBuffers()) {
+				DirectBufferPool pool = new DirectBufferPool(fileConsumerProperties.getPooledBufferMaxSize(),
+						fileConsumerProperties.getPooledBufferMaxTotal());
+				// released by a BufferReleasingChannelInterceptor on the output channel, if any
+				flowBuilder.transform(new PooledContentsTransformer(pool));
+			}
+			else if (decompress || readAhead > 0) {
+				flowBuilder.transform(new StreamTransformer());
+			}
+			else {
+				flowBuilder.transform(new FileToByteArrayTransformer());
+			}
+			if (deduplicateInMemory) {
+				deduplicateContents(flowBuilder, duplicateContentSelector);
+			}
 			break;
 		case lines:
 			Boolean withMarkers = fileConsumerProperties.getWithMarkers();
 			if (withMarkers == null) {
 				withMarkers = false;
 			}
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.TEXT_PLAIN_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			if (fileConsumerProperties.getParallelism() > 1) {
+				flowBuilder.split(new ParallelFileSplitter(fileConsumerProperties.getParallelism(),
+						fileConsumerProperties.getRangeSize()));
+			}
+			else {
+				splitLines(flowBuilder, withMarkers, fileConsumerProperties);
+			}
+			break;
+		case chunks:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			flowBuilder.split(new FileChunkSplitter(fileConsumerProperties.getChunkSize()));
+			break;
+		case batchedLines:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.APPLICATION_JSON_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			flowBuilder.split(new BatchingFileSplitter(fileConsumerProperties.getBatchMaxLines(),
+					fileConsumerProperties.getBatchMaxBytes(), fileConsumerProperties.getBatchFlushTimeout()));
+			break;
+		case fixedLengthRecords:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			flowBuilder.split(new FixedLengthRecordSplitter(fileConsumerProperties.getRecordLength()));
+			break;
+		case lengthPrefixedRecords:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			ByteOrder byteOrder = fileConsumerProperties.isRecordPrefixLittleEndian()
+					? ByteOrder.LITTLE_ENDIAN
+					: ByteOrder.BIG_ENDIAN;
+			flowBuilder.split(new LengthPrefixedRecordSplitter(fileConsumerProperties.getRecordPrefixLength(),
+					byteOrder));
+			break;
+		case delimitedRecords:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.TEXT_PLAIN_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			flowBuilder.split(delimitedRecordSplitter(fileConsumerProperties));
+			break;
+		case stream:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			flowBuilder.transform(new DeferredStreamTransformer());
+			break;
+		case tail:
+			if (metadataStore == null) {
+				throw new IllegalArgumentException("A metadata store is required for the 'tail' file reading mode.");
+			}
 			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
 					MimeTypeUtils.TEXT_PLAIN_VALUE))
-					.split(new FileSplitter(true, withMarkers, fileConsumerProperties.getMarkersJson()));
+					.split(new TailingFileSplitter(metadataStore));
 			break;
 		case ref:
 			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
@@ -77,11 +291,20 @@ public class FileUtils {
 	 */
 	public static IntegrationFlowBuilder enhanceStreamFlowForReadingMode(IntegrationFlowBuilder flowBuilder,
 			FileConsumerProperties fileConsumerProperties) {
+		boolean decompress = fileConsumerProperties.isDecompress();
 		switch (fileConsumerProperties.getMode()) {
 		case contents:
 			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
-					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE))
-					.transform(new StreamTransformer());
+					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			if (fileConsumerProperties.getClaimCheckThreshold() > 0) {
+				flowBuilder.transform(claimCheckTransformer(fileConsumerProperties));
+			}
+			else {
+				flowBuilder.transform(new StreamTransformer());
+			}
 			break;
 		case lines:
 			Boolean withMarkers = fileConsumerProperties.getWithMarkers();
@@ -89,8 +312,26 @@ public class FileUtils {
 				withMarkers = false;
 			}
 			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
-					MimeTypeUtils.TEXT_PLAIN_VALUE))
-					.split(new FileSplitter(true, withMarkers, fileConsumerProperties.getMarkersJson()));
+					MimeTypeUtils.TEXT_PLAIN_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			splitLines(flowBuilder, withMarkers, fileConsumerProperties);
+			break;
+		case delimitedRecords:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.TEXT_PLAIN_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
+			flowBuilder.split(delimitedRecordSplitter(fileConsumerProperties));
+			break;
+		case stream:
+			flowBuilder.enrichHeaders(Collections.<String, Object>singletonMap(MessageHeaders.CONTENT_TYPE,
+					MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE));
+			if (decompress) {
+				flowBuilder.transform(decompressingTransformer(false));
+			}
 			break;
 		case ref:
 		default:
@@ -100,4 +341,419 @@ public class FileUtils {
 		return flowBuilder;
 	}
 
+	/**
+	 * Create the {@link DirectoryScanner} for a {@code FileReadingMessageSource} reading the
+	 * provided directory, depending on {@link FileConsumerProperties}: a
+	 * {@link WatchingDirectoryScanner} if {@code watch} is enabled, a
+	 * {@link StreamingDirectoryScanner} otherwise, reading at most {@code maxEntriesPerPoll}
+	 * entries per poll. The filter and locker, if any, must be set on the scanner instead
+	 * of the message source. With a {@code pickupOrder}, the message source must be created
+	 * with the {@link #receptionOrder(FileConsumerProperties, BeanFactory) receptionOrder}
+	 * comparator.
+	 * @param directory the directory.
+	 * @param fileConsumerProperties the properties.
+	 * @return the directory scanner.
+	 */
+	public static DirectoryScanner directoryScanner(File directory, FileConsumerProperties fileConsumerProperties) {
+		return directoryScanner(directory, fileConsumerProperties, null);
+	}
+
+	/**
+	 * Create the {@link DirectoryScanner} for a {@code FileReadingMessageSource} reading the
+	 * provided directory, as {@link #directoryScanner(File, FileConsumerProperties)}; with
+	 * a {@link ConcurrentMetadataStore}, the processed files are recorded in it by a
+	 * {@link BloomAcceptOnceFileListFilter} instead of being held in the heap.
+	 * @param directory the directory.
+	 * @param fileConsumerProperties the properties.
+	 * @param metadataStore the metadata store; may be null.
+	 * @return the directory scanner.
+	 */
+	public static DirectoryScanner directoryScanner(File directory, FileConsumerProperties fileConsumerProperties,
+			@Nullable ConcurrentMetadataStore metadataStore) {
+
+		return directoryScanner(directory, fileConsumerProperties, metadataStore, 0, 1, null);
+	}
+
+	/**
+	 * Create the {@link DirectoryScanner} for a {@code FileReadingMessageSource} reading the
+	 * provided directory, as {@link #directoryScanner(File, FileConsumerProperties, ConcurrentMetadataStore)};
+	 * with {@code partitionByInstance}, only the files owned by this instance are accepted,
+	 * by a {@link PartitionedFileListFilter} in front of the other filters. The
+	 * {@code pickupPriorityExpression} is evaluated with the integration evaluation context
+	 * of the provided bean factory, supporting bean references.
+	 * @param directory the directory.
+	 * @param fileConsumerProperties the properties.
+	 * @param metadataStore the metadata store; may be null.
+	 * @param instanceIndex the index of this instance, {@code spring.cloud.stream.instanceIndex}.
+	 * @param instanceCount the number of instances, {@code spring.cloud.stream.instanceCount}.
+	 * @param beanFactory the bean factory; may be null.
+	 * @return the directory scanner.
+	 */
+	public static DirectoryScanner directoryScanner(File directory, FileConsumerProperties fileConsumerProperties,
+			@Nullable ConcurrentMetadataStore metadataStore, int instanceIndex, int instanceCount,
+			@Nullable BeanFactory beanFactory) {
+
+		StreamingDirectoryScanner scanner;
+		if (fileConsumerProperties.isWatch()) {
+			WatchingDirectoryScanner watchingScanner = new WatchingDirectoryScanner(directory);
+			watchingScanner.setReconciliationInterval(fileConsumerProperties.getWatchReconciliationInterval());
+			watchingScanner.setEventWaitTimeout(fileConsumerProperties.getWatchEventWaitTimeout());
+			scanner = watchingScanner;
+		}
+		else {
+			scanner = new StreamingDirectoryScanner();
+		}
+		scanner.setMaxEntriesPerPoll(fileConsumerProperties.getMaxEntriesPerPoll());
+		scanner.setSortKey(sortKey(fileConsumerProperties, beanFactory));
+		scanner.setMaxFilesPerPoll(fileConsumerProperties.getMaxFilesPerPoll());
+		boolean partitioned = fileConsumerProperties.isPartitionByInstance() && instanceCount > 1;
+		if (metadataStore != null || partitioned) {
+			List<FileListFilter<File>> filters = new ArrayList<>();
+			if (partitioned) {
+				filters.add(new PartitionedFileListFilter(instanceIndex, instanceCount));
+			}
+			filters.add(new IgnoreHiddenFileListFilter());
+			if (metadataStore != null) {
+				BloomAcceptOnceFileListFilter processedFilter = new BloomAcceptOnceFileListFilter(metadataStore,
+						fileConsumerProperties.getProcessedIndexExpectedEntries(),
+						fileConsumerProperties.getProcessedIndexFalsePositiveProbability());
+				processedFilter.setVerifyHits(fileConsumerProperties.isProcessedIndexVerifyHits());
+				filters.add(processedFilter);
+			}
+			else if (fileConsumerProperties.getMode() != FileReadingMode.tail) {
+				// the 'tail' mode must see the modified files again, reading them from the stored offset
+				filters.add(new AcceptOnceFileListFilter<>());
+			}
+			scanner.setFilter(new CompositeFileListFilter<>(filters));
+		}
+		return scanner;
+	}
+
+	/**
+	 * Create the comparator of the {@code FileReadingMessageSource} for the
+	 * {@link #directoryScanner(File, FileConsumerProperties, ConcurrentMetadataStore, int, int, BeanFactory)
+	 * directory scanner}, comparing the files on the same key as the {@code pickupOrder}.
+	 * The message source queues the scanned files in a priority queue, in the natural
+	 * order of their paths by default, so the pickup order is lost without this comparator,
+	 * to be passed to {@code new FileReadingMessageSource(comparator)} or
+	 * {@code Files.inboundAdapter(directory, comparator)}. The keys are computed on each
+	 * comparison.
+	 * @param fileConsumerProperties the properties.
+	 * @param beanFactory the bean factory; may be null.
+	 * @return the comparator, or null for the 'directory' pickup order.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public static Comparator<File> receptionOrder(FileConsumerProperties fileConsumerProperties,
+			@Nullable BeanFactory beanFactory) {
+
+		Function<File, Comparable<Object>> sortKey =
+				(Function<File, Comparable<Object>>) (Function<File, ?>) sortKey(fileConsumerProperties, beanFactory);
+		return sortKey != null ? Comparator.comparing(sortKey).thenComparing(Comparator.naturalOrder()) : null;
+	}
+
+	@Nullable
+	private static Function<File, ? extends Comparable<?>> sortKey(FileConsumerProperties fileConsumerProperties,
+			@Nullable BeanFactory beanFactory) {
+
+		switch (fileConsumerProperties.getPickupOrder()) {
+		case oldest:
+			return File::lastModified;
+		case newest:
+			return file -> -file.lastModified();
+		case smallest:
+			return File::length;
+		case largest:
+			return file -> -file.length();
+		case name:
+			return File::getName;
+		case priority:
+			Expression expression = fileConsumerProperties.getPickupPriorityExpression();
+			EvaluationContext evaluationContext = ExpressionUtils.createStandardEvaluationContext(beanFactory);
+			return file -> {
+				Double score = expression.getValue(evaluationContext, file, Double.class);
+				return score != null ? -score : Double.POSITIVE_INFINITY;
+			};
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Create the poller of a file or remote file source: with {@code adaptivePolling}, a
+	 * {@link DynamicPeriodicTrigger} adapted by a {@link BackoffReceiveMessageAdvice},
+	 * polling every {@code pollMinInterval} while files are found and backing off up to
+	 * {@code pollMaxInterval} when idle; otherwise a fixed delay of the provided default.
+	 * <p>
+	 * The {@code adaptivePolling} properties only apply to the sources whose poller is
+	 * created by this method: an application, including a remote file (e.g. FTP) source,
+	 * opts in by passing it as the poller of its source endpoint, e.g.
+	 * {@code IntegrationFlows.from(source, e -> e.poller(FileUtils.poller(properties, interval)))}.
+	 * @param fileConsumerProperties the properties.
+	 * @param defaultInterval the fixed interval without adaptive polling.
+	 * @return the poller spec, for further configuration such as {@code maxMessagesPerPoll}.
+	 */
+	public static PollerSpec poller(FileConsumerProperties fileConsumerProperties, Duration defaultInterval) {
+		if (!fileConsumerProperties.isAdaptivePolling()) {
+			return Pollers.fixedDelay(defaultInterval);
+		}
+		DynamicPeriodicTrigger trigger = new DynamicPeriodicTrigger(fileConsumerProperties.getPollMinInterval());
+		BackoffReceiveMessageAdvice advice = new BackoffReceiveMessageAdvice(trigger);
+		advice.setMinPeriod(fileConsumerProperties.getPollMinInterval());
+		advice.setMaxPeriod(fileConsumerProperties.getPollMaxInterval());
+		advice.setMultiplier(fileConsumerProperties.getPollBackoffMultiplier());
+		return Pollers.trigger(trigger).advice(advice);
+	}
+
+	/**
+	 * Close the {@link StaticMessageHeaderAccessor#getCloseableResource closeable resource}
+	 * of the message, if any, e.g. once the file or stream it refers to has been consumed.
+	 * @param message the message.
+	 */
+	public static void closeResource(Message<?> message) {
+		Closeable closeableResource = StaticMessageHeaderAccessor.getCloseableResource(message);
+		if (closeableResource != null) {
+			try {
+				closeableResource.close();
+			}
+			catch (IOException e) {
+				// ignored
+			}
+		}
+	}
+
+	/**
+	 * Create a {@link RollingFileWritingMessageHandler} configured from {@link FileWriterProperties},
+	 * with a {@link CompressingRollListener} if a {@code compression} format is set.
+	 * @param fileWriterProperties the properties.
+	 * @return the message handler.
+	 */
+	public static RollingFileWritingMessageHandler rollingFileWriter(FileWriterProperties fileWriterProperties) {
+		RollingFileWritingMessageHandler handler =
+				new RollingFileWritingMessageHandler(fileWriterProperties.getDirectory());
+		handler.setFileNamePrefix(fileWriterProperties.getFileNamePrefix());
+		handler.setFileNameSuffix(fileWriterProperties.getFileNameSuffix());
+		handler.setRollSize(fileWriterProperties.getRollSize());
+		handler.setRollRecords(fileWriterProperties.getRollRecords());
+		handler.setRollInterval(fileWriterProperties.getRollInterval());
+		handler.setFsyncPolicy(fileWriterProperties.getFsyncPolicy());
+		handler.setGroupCommitInterval(fileWriterProperties.getGroupCommitInterval());
+		handler.setBufferSize(fileWriterProperties.getBufferSize());
+		if (fileWriterProperties.isBinary()) {
+			handler.setDelimiter(new byte[0]);
+		}
+		if (fileWriterProperties.getCompression() != null) {
+			CompressingRollListener compressingRollListener = new CompressingRollListener(
+					fileWriterProperties.getCompression(), fileWriterProperties.getCompressionThreads());
+			compressingRollListener.setForce(fileWriterProperties.getFsyncPolicy() != FsyncPolicy.never);
+			handler.addRollListener(compressingRollListener);
+		}
+		return handler;
+	}
+
+	/**
+	 * Reactive counterpart of {@link #enhanceFlowForReadingMode}: map a {@link Flux} of
+	 * {@link File} (or file path) messages to the messages for the reading mode, reading
+	 * the files with an {@link AsynchronousFileChannel} into {@link DataBuffer}s only as
+	 * fast as the downstream requests them. Files are read one at a time, in order.
+	 * Supports the 'ref', 'contents', 'lines' and 'chunks' modes.
+	 * @param files the file messages.
+	 * @param fileConsumerProperties the properties.
+	 * @return the messages for the reading mode.
+	 */
+	public static Flux<Message<?>> enhanceFluxForReadingMode(Flux<Message<?>> files,
+			FileConsumerProperties fileConsumerProperties) {
+
+		return enhanceFluxForReadingMode(files, fileConsumerProperties, new DefaultDataBufferFactory());
+	}
+
+	/**
+	 * Reactive counterpart of {@link #enhanceFlowForReadingMode}, reading the files into
+	 * {@link DataBuffer}s from the provided factory, e.g. a pooled {@code NettyDataBufferFactory}.
+	 * The buffers are released as soon as they have been decoded.
+	 * @param files the file messages.
+	 * @param fileConsumerProperties the properties.
+	 * @param dataBufferFactory the factory for the read buffers.
+	 * @return the messages for the reading mode.
+	 * @see #enhanceFluxForReadingMode(Flux, FileConsumerProperties)
+	 */
+	public static Flux<Message<?>> enhanceFluxForReadingMode(Flux<Message<?>> files,
+			FileConsumerProperties fileConsumerProperties, DataBufferFactory dataBufferFactory) {
+
+		FileReadingMode mode = fileConsumerProperties.getMode();
+		switch (mode) {
+		case ref:
+		case contents:
+		case lines:
+		case chunks:
+			break;
+		default:
+			throw new IllegalArgumentException(mode.name() + " is not a supported file reading mode when reactive.");
+		}
+		if (fileConsumerProperties.isDecompress()) {
+			throw new IllegalArgumentException("decompress is not supported when reactive.");
+		}
+		if (fileConsumerProperties.getClaimCheckThreshold() > 0) {
+			throw new IllegalArgumentException("claimCheckThreshold is not supported when reactive.");
+		}
+		return files.concatMap(message -> readReactively(message, mode, fileConsumerProperties, dataBufferFactory));
+	}
+
+	private static Flux<Message<?>> readReactively(Message<?> message, FileReadingMode mode,
+			FileConsumerProperties fileConsumerProperties, DataBufferFactory dataBufferFactory) {
+
+		Object payload = message.getPayload();
+		if (!(payload instanceof File || payload instanceof String)) {
+			return Flux.error(new IllegalArgumentException("Expected a File or a file path payload, got: " + payload));
+		}
+		File file = payload instanceof File ? (File) payload : new File((String) payload);
+		switch (mode) {
+		case ref:
+			return Flux.<Message<?>>just(fileMessage(file, message, file, MimeTypeUtils.APPLICATION_JSON_VALUE).build());
+		case contents:
+			return DataBufferUtils.join(readFile(file, dataBufferFactory, REACTIVE_BUFFER_SIZE))
+					.<Message<?>>map(dataBuffer -> {
+						byte[] bytes = new byte[dataBuffer.readableByteCount()];
+						dataBuffer.read(bytes);
+						DataBufferUtils.release(dataBuffer);
+						return fileMessage(bytes, message, file, MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE).build();
+					})
+					.flux();
+		case lines:
+			// a single delimiter; the decoder does not pick the earliest of several ones
+			StringDecoder decoder = StringDecoder.textPlainOnly(Collections.singletonList("\n"), true);
+			decoder.setMaxInMemorySize(-1);
+			return decoder.decode(readFile(file, dataBufferFactory, REACTIVE_BUFFER_SIZE),
+					ResolvableType.forClass(String.class),
+					new MimeType(MimeTypeUtils.TEXT_PLAIN, Charset.defaultCharset()), Collections.emptyMap())
+					.map(line -> line.endsWith("\r") ? line.substring(0, line.length() - 1) : line)
+					.index()
+					.<Message<?>>map(line -> fileMessage(line.getT2(), message, file, MimeTypeUtils.TEXT_PLAIN_VALUE)
+							.pushSequenceDetails(message.getHeaders().getId(), line.getT1().intValue() + 1, 0)
+							.build());
+		default:
+			AtomicLong offset = new AtomicLong();
+			return readFile(file, dataBufferFactory, fileConsumerProperties.getChunkSize())
+					.index()
+					.<Message<?>>map(chunk -> {
+						DataBuffer dataBuffer = chunk.getT2();
+						byte[] bytes = new byte[dataBuffer.readableByteCount()];
+						dataBuffer.read(bytes);
+						DataBufferUtils.release(dataBuffer);
+						return fileMessage(bytes, message, file, MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE)
+								.pushSequenceDetails(message.getHeaders().getId(), chunk.getT1().intValue() + 1, 0)
+								.setHeader(FileReadingHeaders.OFFSET, offset.getAndAdd(bytes.length))
+								.build();
+					});
+		}
+	}
+
+	private static Flux<DataBuffer> readFile(File file, DataBufferFactory dataBufferFactory, int bufferSize) {
+		return DataBufferUtils.readAsynchronousFileChannel(
+				() -> AsynchronousFileChannel.open(file.toPath(), StandardOpenOption.READ),
+				dataBufferFactory, bufferSize);
+	}
+
+	private static MessageBuilder<?> fileMessage(Object payload, Message<?> fileMessage, File file,
+			String contentType) {
+
+		return MessageBuilder.withPayload(payload)
+				.copyHeaders(fileMessage.getHeaders())
+				.setHeader(MessageHeaders.CONTENT_TYPE, contentType)
+				.setHeaderIfAbsent(FileHeaders.ORIGINAL_FILE, file)
+				.setHeaderIfAbsent(FileHeaders.FILENAME, file.getName());
+	}
+
+	private static void splitLines(IntegrationFlowBuilder flowBuilder, boolean withMarkers,
+			FileConsumerProperties fileConsumerProperties) {
+
+		if (withMarkers) {
+			StatisticsFileSplitter splitter = new StatisticsFileSplitter(fileConsumerProperties.getMarkersJson()
+					&& !fileConsumerProperties.isMarkersBinary());
+			splitter.setMarkersBinary(fileConsumerProperties.isMarkersBinary());
+			flowBuilder.split(splitter);
+		}
+		else {
+			flowBuilder.handle(new LineMessageSplitter());
+		}
+	}
+
+	@Nullable
+	private static String partitionKey(Message<?> message) {
+		Object payload = message.getPayload();
+		if (payload instanceof File) {
+			return ((File) payload).getAbsolutePath();
+		}
+		else if (payload instanceof String) {
+			return new File((String) payload).getAbsolutePath();
+		}
+		File originalFile = message.getHeaders().get(FileHeaders.ORIGINAL_FILE, File.class);
+		return originalFile != null ? originalFile.getAbsolutePath() : null;
+	}
+
+	/**
+	 * The record of the content is removed if the processing fails within the send to the
+	 * channel following the filter.
+	 */
+	private static void deduplicateContents(IntegrationFlowBuilder flowBuilder,
+			DuplicateContentMessageSelector duplicateContentSelector) {
+
+		flowBuilder.filter(duplicateContentSelector)
+				.channel(MessageChannels.direct().interceptor(duplicateContentSelector.rollbackInterceptor()));
+	}
+
+	/**
+	 * Each file is processed on one of the threads; with all of them busy and as many files
+	 * waiting, the poller thread processes the next file itself, rather than buffering more.
+	 */
+	private static MessageChannel concurrentFilesChannel(int concurrency,
+			FileConsumerProperties fileConsumerProperties) {
+
+		ThreadPoolTaskExecutor taskExecutor = processingExecutor("file-processing-", fileConsumerProperties);
+		taskExecutor.setCorePoolSize(concurrency);
+		taskExecutor.setMaxPoolSize(concurrency);
+		taskExecutor.setQueueCapacity(concurrency);
+		taskExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+		return new TaskExecutorChannel(taskExecutor);
+	}
+
+	/**
+	 * A single thread, so the files are still processed in order, while the poller thread
+	 * reads the next ones ahead.
+	 */
+	private static MessageChannel readAheadProcessingChannel(FileConsumerProperties fileConsumerProperties) {
+		ThreadPoolTaskExecutor taskExecutor =
+				processingExecutor("file-read-ahead-processing-", fileConsumerProperties);
+		taskExecutor.setCorePoolSize(1);
+		taskExecutor.setMaxPoolSize(1);
+		return new TaskExecutorChannel(taskExecutor);
+	}
+
+	private static ThreadPoolTaskExecutor processingExecutor(String threadNamePrefix,
+			FileConsumerProperties fileConsumerProperties) {
+
+		ThreadPoolTaskExecutor taskExecutor = new ThreadPoolTaskExecutor();
+		taskExecutor.setThreadNamePrefix(threadNamePrefix);
+		taskExecutor.setWaitForTasksToCompleteOnShutdown(true);
+		taskExecutor.setAwaitTerminationMillis(fileConsumerProperties.getProcessingShutdownTimeout().toMillis());
+		return taskExecutor;
+	}
+
+	private static DelimitedRecordSplitter delimitedRecordSplitter(FileConsumerProperties fileConsumerProperties) {
+		return new DelimitedRecordSplitter(fileConsumerProperties.getRecordDelimiter(),
+				fileConsumerProperties.isRecordDelimiterRegex());
+	}
+
+	private static ClaimCheckTransformer claimCheckTransformer(FileConsumerProperties fileConsumerProperties) {
+		ContentAddressedFileStore store = new ContentAddressedFileStore(fileConsumerProperties.getClaimCheckDirectory());
+		store.setRetention(fileConsumerProperties.getClaimCheckRetention());
+		return new ClaimCheckTransformer(store, fileConsumerProperties.getClaimCheckThreshold());
+	}
+
+	private static DecompressingTransformer decompressingTransformer(boolean streamUncompressed) {
+		DecompressingTransformer decompressingTransformer = new DecompressingTransformer();
+		decompressingTransformer.setStreamUncompressed(streamUncompressed);
+		return decompressingTransformer;
+	}
+
 }
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file;
+
+import java.io.File;
+import java.time.Duration;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.stream.app.file.compression.CompressionFormat;
+import org.springframework.cloud.stream.app.file.writer.FsyncPolicy;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Properties of the {@link org.springframework.cloud.stream.app.file.writer.RollingFileWritingMessageHandler}.
+ *
+ * @since 3.0
+ */
+@ConfigurationProperties("file.writer")
+@Validated
+public class FileWriterProperties {
+
+	/**
+	 * The directory the files are written to.
+	 */
+	private File directory = new File(System.getProperty("java.io.tmpdir"), "file-writer");
+
+	/**
+	 * The prefix of the file names, followed by a timestamp and a counter.
+	 */
+	private String fileNamePrefix = "output";
+
+	/**
+	 * The suffix of the file names, e.g. '.txt'.
+	 */
+	private String fileNameSuffix = "";
+
+	/**
+	 * The size in bytes from which a file is rolled; 0 for no limit.
+	 */
+	private long rollSize = 128 * 1024 * 1024;
+
+	/**
+	 * The number of records from which a file is rolled; 0 for no limit.
+	 */
+	private long rollRecords;
+
+	/**
+	 * The age from which a file is rolled; 0 for no limit.
+	 */
+	private Duration rollInterval = Duration.ZERO;
+
+	/**
+	 * When the written data is forced to the storage device: 'never', on 'roll',
+	 * or on 'groupCommit' every 'groupCommitInterval' as well as on roll.
+	 */
+	private FsyncPolicy fsyncPolicy = FsyncPolicy.roll;
+
+	/**
+	 * The interval between two group commits, the maximum time written records are at risk on a crash.
+	 */
+	private Duration groupCommitInterval = Duration.ofMillis(10);
+
+	/**
+	 * The size in bytes of the write buffer.
+	 */
+	private int bufferSize = 64 * 1024;
+
+	/**
+	 * Set to true to write the payloads as is, without a new line after each of them.
+	 */
+	private boolean binary;
+
+	/**
+	 * The format to compress the rolled files to on a background pool, e.g. 'GZIP' or 'ZSTD';
+	 * not compressed if not set.
+	 */
+	private CompressionFormat compression;
+
+	/**
+	 * The number of rolled files compressed in parallel.
+	 */
+	private int compressionThreads = Runtime.getRuntime().availableProcessors();
+
+	@NotNull
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	@NotEmpty
+	public String getFileNamePrefix() {
+		return this.fileNamePrefix;
+	}
+
+	public void setFileNamePrefix(String fileNamePrefix) {
+		this.fileNamePrefix = fileNamePrefix;
+	}
+
+	@NotNull
+	public String getFileNameSuffix() {
+		return this.fileNameSuffix;
+	}
+
+	public void setFileNameSuffix(String fileNameSuffix) {
+		this.fileNameSuffix = fileNameSuffix;
+	}
+
+	@Min(0)
+	public long getRollSize() {
+		return this.rollSize;
+	}
+
+	public void setRollSize(long rollSize) {
+		this.rollSize = rollSize;
+	}
+
+	@Min(0)
+	public long getRollRecords() {
+		return this.rollRecords;
+	}
+
+	public void setRollRecords(long rollRecords) {
+		this.rollRecords = rollRecords;
+	}
+
+	@NotNull
+	public Duration getRollInterval() {
+		return this.rollInterval;
+	}
+
+	public void setRollInterval(Duration rollInterval) {
+		this.rollInterval = rollInterval;
+	}
+
+	@NotNull
+	public FsyncPolicy getFsyncPolicy() {
+		return this.fsyncPolicy;
+	}
+
+	public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+		this.fsyncPolicy = fsyncPolicy;
+	}
+
+	@NotNull
+	public Duration getGroupCommitInterval() {
+		return this.groupCommitInterval;
+	}
+
+	public void setGroupCommitInterval(Duration groupCommitInterval) {
+		this.groupCommitInterval = groupCommitInterval;
+	}
+
+	@Min(1)
+	public int getBufferSize() {
+		return this.bufferSize;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public boolean isBinary() {
+		return this.binary;
+	}
+
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	public CompressionFormat getCompression() {
+		return this.compression;
+	}
+
+	public void setCompression(CompressionFormat compression) {
+		this.compression = compression;
+	}
+
+	@Min(1)
+	public int getCompressionThreads() {
+		return this.compressionThreads;
+	}
+
+	public void setCompressionThreads(int compressionThreads) {
+		this.compressionThreads = compressionThreads;
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.integration.channel.ExecutorChannel;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * An {@link ExecutorChannel} owning its {@link ThreadPoolTaskExecutor}, whose lifecycle
+ * follows the one of the flow the channel is registered by: the threads are started
+ * with the channel and, when it is stopped, the executor is shut down waiting for the
+ * files in flight, up to its await termination period. The channel stops after the
+ * polling endpoints, so no new file is handed over, and before the event driven
+ * consumers processing the files.
+ *
+ * @since 3.0
+ */
+class TaskExecutorChannel extends ExecutorChannel implements SmartLifecycle, DisposableBean {
+
+	private final ThreadPoolTaskExecutor taskExecutor;
+
+	private volatile boolean running;
+
+	TaskExecutorChannel(ThreadPoolTaskExecutor taskExecutor) {
+		super(taskExecutor);
+		this.taskExecutor = taskExecutor;
+	}
+
+	@Override
+	public synchronized void start() {
+		if (!this.running) {
+			this.taskExecutor.initialize();
+			this.running = true;
+		}
+	}
+
+	@Override
+	public synchronized void stop() {
+		if (this.running) {
+			this.running = false;
+			this.taskExecutor.shutdown();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public int getPhase() {
+		// between the consumers (Integer.MIN_VALUE) and the polling endpoints (Integer.MAX_VALUE / 2)
+		return 0;
+	}
+
+	@Override
+	public void destroy() {
+		stop();
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.buffer;
+
+import java.io.Closeable;
+
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+/**
+ * Releases the {@link PooledBuffer} of a message once it has been sent to a
+ * subscribable channel, i.e. once the subscribers have handled it on the sending
+ * thread, successfully or not.
+ * <p>
+ * It belongs on the output channel of the flow, e.g. the one bound to the binder, whose
+ * send converts the payload, e.g. with a {@link ByteBufferMessageConverter}, before
+ * returning: executor or queue channels earlier in the flow then hand the message over
+ * with its buffer still referenced. A subscriber of the output channel handing the
+ * message over to another thread must {@link PooledBuffer#retain() retain} the buffer
+ * first. The buffers of the duplicates rejected by the content deduplication are
+ * released by its selector; those of the other messages which never reach the output
+ * channel, e.g. failed, are not returned to the pool, but left to the garbage collector.
+ *
+ * @since 3.0
+ */
+public class BufferReleasingChannelInterceptor implements ChannelInterceptor {
+
+	@Override
+	public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent,
+			@Nullable Exception ex) {
+
+		Closeable closeableResource = StaticMessageHeaderAccessor.getCloseableResource(message);
+		if (closeableResource instanceof PooledBuffer) {
+			((PooledBuffer) closeableResource).release();
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file.buffer;
+
+import java.nio.ByteBuffer;
+
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * A message converter between {@link ByteBuffer} payloads, such as the ones of a
+ * {@link PooledContentsTransformer}, and the {@code byte[]} a binder sends, for the
+ * {@code application/octet-stream} content type. The bytes are copied when the message
+ * is converted on the sending thread, so the buffer can be released once the send to
+ * the output channel has completed.
+ *
+ * @since 3.0
+ */
+public class ByteBufferMessageConverter extends AbstractMessageConverter {
+
+	/**
+	 * Construct an instance for the {@code application/octet-stream} content type.
+	 */
+	public ByteBufferMessageConverter() {
+		super(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return ByteBuffer.class.isAssignableFrom(clazz);
+	}
+
+	@Override
+	protected Object convertFromInternal(Message<?> message, Class<?> targetClass, @Nullable Object conversionHint) {
+		Object payload = message.getPayload();
+		return payload instanceof byte[] ? ByteBuffer.wrap((byte[]) payload) : payload;
+	}
+
+	@Override
+	protected Object convertToInternal(Object payload, @Nullable MessageHeaders headers,
+			@Nullable Object conversionHint) {
+
+		ByteBuffer buffer = ((ByteBuffer) payload).duplicate();
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.buffer;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.util.Assert;
+
+/**
+ * A pool of direct {@link ByteBuffer}s in power of two size classes, from 4KB up to a
+ * maximum buffer size. Released buffers are kept for reuse as long as the pooled
+ * buffers do not exceed a total capacity; the others are left to the garbage collector.
+ *
+ * @since 3.0
+ */
+public class DirectBufferPool {
+
+	private static final int MIN_SIZE_SHIFT = 12;
+
+	private final int maxBufferSize;
+
+	private final long maxPooledBytes;
+
+	private final Queue<ByteBuffer>[] sizeClasses;
+
+	private final AtomicLong pooledBytes = new AtomicLong();
+
+	/**
+	 * Construct an instance with the provided limits.
+	 * @param maxBufferSize the size of the largest buffer provided by the pool.
+	 * @param maxPooledBytes the maximum total capacity of the pooled buffers.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public DirectBufferPool(int maxBufferSize, long maxPooledBytes) {
+		Assert.isTrue(maxBufferSize > 0 && maxBufferSize <= 1 << 30, "'maxBufferSize' must be in (0, 1GB]");
+		Assert.isTrue(maxPooledBytes >= 0, "'maxPooledBytes' must not be negative");
+		this.maxBufferSize = maxBufferSize;
+		this.maxPooledBytes = maxPooledBytes;
+		this.sizeClasses = new Queue[sizeClass(maxBufferSize) + 1];
+		for (int i = 0; i < this.sizeClasses.length; i++) {
+			this.sizeClasses[i] = new ConcurrentLinkedQueue<>();
+		}
+	}
+
+	/**
+	 * Return the size of the largest buffer provided by the pool.
+	 * @return the maximum buffer size.
+	 */
+	public int getMaxBufferSize() {
+		return this.maxBufferSize;
+	}
+
+	/**
+	 * Return the total capacity of the buffers currently pooled.
+	 * @return the pooled bytes.
+	 */
+	public long getPooledBytes() {
+		return this.pooledBytes.get();
+	}
+
+	/**
+	 * Take a cleared buffer of at least the provided capacity from the pool, or
+	 * allocate one.
+	 * @param capacity the minimum capacity.
+	 * @return the buffer.
+	 */
+	public ByteBuffer acquire(int capacity) {
+		Assert.isTrue(capacity <= this.maxBufferSize, () -> "'capacity' must not exceed " + this.maxBufferSize);
+		int sizeClass = sizeClass(capacity);
+		ByteBuffer buffer = this.sizeClasses[sizeClass].poll();
+		if (buffer == null) {
+			return ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SIZE_SHIFT));
+		}
+		this.pooledBytes.addAndGet(-buffer.capacity());
+		buffer.clear();
+		return buffer;
+	}
+
+	/**
+	 * Return a buffer obtained from {@link #acquire(int)} to the pool.
+	 * @param buffer the buffer.
+	 */
+	public void release(ByteBuffer buffer) {
+		int capacity = buffer.capacity();
+		if (this.pooledBytes.addAndGet(capacity) <= this.maxPooledBytes) {
+			this.sizeClasses[sizeClass(capacity)].offer(buffer);
+		}
+		else {
+			this.pooledBytes.addAndGet(-capacity);
+		}
+	}
+
+	private static int sizeClass(int capacity) {
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity, 1) - 1);
+		return Math.max(shift - MIN_SIZE_SHIFT, 0);
+	}
+
+}
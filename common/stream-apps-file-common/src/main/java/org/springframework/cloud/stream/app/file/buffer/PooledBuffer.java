@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.buffer;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted handle on a buffer of a {@link DirectBufferPool}, returning the
+ * buffer to the pool when the last reference is released. It is created with one
+ * reference; a component handing the buffer over to another thread must
+ * {@link #retain()} it first, the other thread releasing it when done.
+ * {@link #close()} releases one reference.
+ *
+ * @since 3.0
+ */
+public final class PooledBuffer implements Closeable {
+
+	private final DirectBufferPool pool;
+
+	private final ByteBuffer buffer;
+
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	PooledBuffer(DirectBufferPool pool, ByteBuffer buffer) {
+		this.pool = pool;
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Add a reference.
+	 * @return this handle.
+	 */
+	public PooledBuffer retain() {
+		this.references.updateAndGet(count -> {
+			if (count <= 0) {
+				throw new IllegalStateException("The buffer has already been released");
+			}
+			return count + 1;
+		});
+		return this;
+	}
+
+	/**
+	 * Release a reference, returning the buffer to the pool if it was the last one.
+	 * @return true if the buffer has been returned to the pool.
+	 */
+	public boolean release() {
+		int count = this.references.decrementAndGet();
+		if (count < 0) {
+			this.references.incrementAndGet();
+			throw new IllegalStateException("The buffer has already been released");
+		}
+		if (count == 0) {
+			this.pool.release(this.buffer);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the number of references.
+	 * @return the reference count.
+	 */
+	public int referenceCount() {
+		return this.references.get();
+	}
+
+	@Override
+	public void close() {
+		release();
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.buffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.transformer.AbstractTransformer;
+import org.springframework.integration.transformer.MessageTransformationException;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+/**
+ * Reads a {@link File} or file path payload into a read-only {@link ByteBuffer} payload
+ * backed by a direct buffer of a {@link DirectBufferPool}, instead of a new
+ * {@code byte[]} per file, so the contents of many small and medium files do not churn
+ * the heap. The {@link PooledBuffer} is the
+ * {@link IntegrationMessageHeaderAccessor#CLOSEABLE_RESOURCE closeable resource} of the
+ * message, to be released once the payload has been sent, e.g. by a
+ * {@link BufferReleasingChannelInterceptor}. Files larger than the largest pooled
+ * buffer are read into a heap buffer which is not pooled. Any other payload is
+ * returned as is.
+ *
+ * @since 3.0
+ */
+public class PooledContentsTransformer extends AbstractTransformer {
+
+	private final DirectBufferPool pool;
+
+	/**
+	 * Construct an instance reading into the buffers of the provided pool.
+	 * @param pool the pool.
+	 */
+	public PooledContentsTransformer(DirectBufferPool pool) {
+		Assert.notNull(pool, "'pool' must not be null");
+		this.pool = pool;
+	}
+
+	@Override
+	protected Object doTransform(Message<?> message) {
+		Object payload = message.getPayload();
+		File file;
+		if (payload instanceof File) {
+			file = (File) payload;
+		}
+		else if (payload instanceof String) {
+			file = new File((String) payload);
+		}
+		else {
+			return message;
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > this.pool.getMaxBufferSize()) {
+				if (size > Integer.MAX_VALUE - 8) {
+					throw new IOException("File too large to be read into a buffer: " + size);
+				}
+				ByteBuffer buffer = ByteBuffer.allocate((int) size);
+				readFully(channel, buffer);
+				return buffer;
+			}
+			ByteBuffer buffer = this.pool.acquire((int) size);
+			PooledBuffer pooledBuffer = new PooledBuffer(this.pool, buffer);
+			try {
+				buffer.limit((int) size);
+				readFully(channel, buffer);
+			}
+			catch (IOException | RuntimeException e) {
+				pooledBuffer.release();
+				throw e;
+			}
+			return getMessageBuilderFactory()
+					.withPayload(buffer.asReadOnlyBuffer())
+					.copyHeaders(message.getHeaders())
+					.setHeader(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE, pooledBuffer)
+					.setHeaderIfAbsent(FileHeaders.ORIGINAL_FILE, file)
+					.setHeaderIfAbsent(FileHeaders.FILENAME, file.getName())
+					.build();
+		}
+		catch (IOException e) {
+			throw new MessageTransformationException(message, "Failed to read file [" + file + "]", e);
+		}
+	}
+
+	/**
+	 * Read until the buffer is full or the end of the file, e.g. if it has been truncated
+	 * meanwhile, and flip the buffer.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+			// keep reading
+		}
+		buffer.flip();
+	}
+
+}
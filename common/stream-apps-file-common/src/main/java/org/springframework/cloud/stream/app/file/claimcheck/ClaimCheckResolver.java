@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.claimcheck;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * The consumer side counterpart of the {@link ClaimCheckTransformer}: replaces the
+ * payload of a message carrying a {@link FileReadingHeaders#CLAIM_CHECK} header with
+ * the content loaded from the {@link ContentAddressedFileStore}. Other messages are
+ * returned as is.
+ * <p>
+ * The store must be in a directory accessible to both sides, e.g. a shared mount.
+ * The content is left in the store: identical contents share a key, so another message
+ * in flight may still refer to it. The store purges the contents after its
+ * {@link ContentAddressedFileStore#setRetention retention} instead.
+ *
+ * @since 3.0
+ */
+public class ClaimCheckResolver implements Function<Message<?>, Message<?>> {
+
+	private final ContentAddressedFileStore store;
+
+	/**
+	 * Construct an instance loading the contents from the provided store.
+	 * @param store the store.
+	 */
+	public ClaimCheckResolver(ContentAddressedFileStore store) {
+		Assert.notNull(store, "'store' must not be null");
+		this.store = store;
+	}
+
+	@Override
+	public Message<?> apply(Message<?> message) {
+		Object claimCheck = message.getHeaders().get(FileReadingHeaders.CLAIM_CHECK);
+		if (claimCheck == null) {
+			return message;
+		}
+		String key = claimCheck instanceof byte[] ? new String((byte[]) claimCheck) : claimCheck.toString();
+		try {
+			byte[] content = this.store.load(key);
+			return MessageBuilder.withPayload(content)
+					.copyHeaders(message.getHeaders())
+					.removeHeader(FileReadingHeaders.CLAIM_CHECK)
+					.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE)
+					.build();
+		}
+		catch (IOException e) {
+			throw new MessagingException(message, "Failed to load the content for claim check [" + key + "]", e);
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.claimcheck;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.cloud.stream.app.file.FileUtils;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.transformer.AbstractTransformer;
+import org.springframework.integration.transformer.MessageTransformationException;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.util.Assert;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Reads a {@link File}, file path or {@link InputStream} payload into a {@code byte[]}
+ * payload, unless the content is larger than a threshold: such a content is put in a
+ * {@link ContentAddressedFileStore} instead and the message only carries its key, as
+ * both the payload and the {@link FileReadingHeaders#CLAIM_CHECK} header, so huge
+ * contents do not go through the binder. The {@link ClaimCheckResolver} loads the
+ * content back on the consumer side.
+ * <p>
+ * At most {@code threshold + 1} bytes are held in memory; the rest of a large content
+ * is streamed to the store. The
+ * {@link StaticMessageHeaderAccessor#getCloseableResource closeable resource} of an
+ * {@link InputStream} payload is closed once the stream has been consumed.
+ *
+ * @since 3.0
+ */
+public class ClaimCheckTransformer extends AbstractTransformer {
+
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+	private final ContentAddressedFileStore store;
+
+	private final long threshold;
+
+	/**
+	 * Construct an instance with the provided store and size threshold.
+	 * @param store the store for the large contents.
+	 * @param threshold the size in bytes above which the content is stored.
+	 */
+	public ClaimCheckTransformer(ContentAddressedFileStore store, long threshold) {
+		Assert.notNull(store, "'store' must not be null");
+		Assert.isTrue(threshold > 0 && threshold < Integer.MAX_VALUE - 8,
+				"'threshold' must be greater than 0 and fit in a byte array");
+		this.store = store;
+		this.threshold = threshold;
+	}
+
+	@Override
+	protected Object doTransform(Message<?> message) {
+		Object payload = message.getPayload();
+		if (!(payload instanceof File || payload instanceof String || payload instanceof InputStream)) {
+			return message;
+		}
+		try {
+			InputStream inputStream;
+			if (payload instanceof InputStream) {
+				inputStream = (InputStream) payload;
+			}
+			else {
+				inputStream = new FileInputStream(payload instanceof File ? (File) payload : new File((String) payload));
+			}
+			try (InputStream in = inputStream) {
+				byte[] head = readHead(in);
+				if (head.length <= this.threshold) {
+					return head;
+				}
+				String key = this.store.store(new SequenceInputStream(new ByteArrayInputStream(head), in));
+				return getMessageBuilderFactory()
+						.withPayload(key)
+						.copyHeaders(message.getHeaders())
+						.setHeader(FileReadingHeaders.CLAIM_CHECK, key)
+						.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.TEXT_PLAIN_VALUE)
+						.build();
+			}
+			finally {
+				if (payload instanceof InputStream) {
+					FileUtils.closeResource(message);
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new MessageTransformationException(message, "Failed to read or claim check the content", e);
+		}
+	}
+
+	private byte[] readHead(InputStream inputStream) throws IOException {
+		long limit = this.threshold + 1;
+		byte[] head = new byte[(int) Math.min(limit, INITIAL_BUFFER_SIZE)];
+		int length = 0;
+		while (length < limit) {
+			if (length == head.length) {
+				head = Arrays.copyOf(head, (int) Math.min(limit, head.length * 2L));
+			}
+			int read = inputStream.read(head, length, head.length - length);
+			if (read < 0) {
+				break;
+			}
+			length += read;
+		}
+		return length == head.length ? head : Arrays.copyOf(head, length);
+	}
+
+}
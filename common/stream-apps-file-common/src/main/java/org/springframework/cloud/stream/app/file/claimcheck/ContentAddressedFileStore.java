@@ -0,0 +1,231 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.claimcheck;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.regex.Pattern;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A content-addressed store of byte contents in a local (or shared) directory: each
+ * content is stored once, in a file named after the hex SHA-256 digest of the content,
+ * which is the key to load it back.
+ * <p>
+ * Contents are first written to a temporary file in the same directory and then moved
+ * to their final name, so a key never refers to a partially written file.
+ * <p>
+ * Contents are kept until {@link #remove(String) removed}, unless a
+ * {@link #setRetention(Duration) retention} is set: the contents not stored again for
+ * longer than the retention are then purged while storing new ones. The retention must
+ * exceed the time the consumers may take to load a content. Identical contents share a
+ * key, so a content must not be removed as soon as one message referring to it has
+ * been consumed: other messages in flight, or stored concurrently, may still need it.
+ *
+ * @since 3.0
+ */
+public class ContentAddressedFileStore {
+
+	private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}");
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private static final long MAX_PURGE_INTERVAL = Duration.ofMinutes(1).toMillis();
+
+	private final Path directory;
+
+	@Nullable
+	private Duration retention;
+
+	private volatile long lastPurge;
+
+	/**
+	 * Construct an instance storing the contents in the provided directory, created if
+	 * it does not exist.
+	 * @param directory the directory.
+	 */
+	public ContentAddressedFileStore(File directory) {
+		Assert.notNull(directory, "'directory' must not be null");
+		this.directory = directory.toPath();
+	}
+
+	/**
+	 * Set the time after which the contents not stored again are purged; null (default)
+	 * to keep them until removed.
+	 * @param retention the retention.
+	 */
+	public void setRetention(@Nullable Duration retention) {
+		Assert.isTrue(retention == null || !retention.isNegative() && !retention.isZero(),
+				"'retention' must be positive");
+		this.retention = retention;
+	}
+
+	/**
+	 * Store the content of the provided stream; the stream is not closed.
+	 * @param inputStream the content.
+	 * @return the key of the content.
+	 * @throws IOException if the content cannot be read or stored.
+	 */
+	public String store(InputStream inputStream) throws IOException {
+		Files.createDirectories(this.directory);
+		purgeIfDue();
+		Path temp = Files.createTempFile(this.directory, "store-", ".tmp");
+		try {
+			DigestInputStream digestInputStream = new DigestInputStream(inputStream, sha256());
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				StreamUtils.copy(digestInputStream, out);
+			}
+			String key = toHex(digestInputStream.getMessageDigest().digest());
+			Path target = this.directory.resolve(key);
+			if (touch(target)) {
+				Files.delete(temp);
+			}
+			else {
+				try {
+					Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+				}
+				catch (FileAlreadyExistsException e) {
+					// stored concurrently
+					Files.deleteIfExists(temp);
+				}
+			}
+			return key;
+		}
+		catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+	}
+
+	/**
+	 * Remove the contents not stored again for longer than the
+	 * {@link #setRetention(Duration) retention}, if any.
+	 * @return the number of removed contents.
+	 * @throws IOException if the directory cannot be listed or a content cannot be removed.
+	 */
+	public int purge() throws IOException {
+		Duration retention = this.retention;
+		if (retention == null || !Files.isDirectory(this.directory)) {
+			return 0;
+		}
+		this.lastPurge = System.currentTimeMillis();
+		FileTime expiry = FileTime.fromMillis(this.lastPurge - retention.toMillis());
+		int purged = 0;
+		try (DirectoryStream<Path> contents = Files.newDirectoryStream(this.directory)) {
+			for (Path content : contents) {
+				if (KEY_PATTERN.matcher(content.getFileName().toString()).matches()) {
+					try {
+						if (Files.getLastModifiedTime(content).compareTo(expiry) < 0 && Files.deleteIfExists(content)) {
+							purged++;
+						}
+					}
+					catch (NoSuchFileException e) {
+						// removed concurrently
+					}
+				}
+			}
+		}
+		return purged;
+	}
+
+	private void purgeIfDue() throws IOException {
+		Duration retention = this.retention;
+		if (retention != null
+				&& System.currentTimeMillis() - this.lastPurge >= Math.min(retention.toMillis(), MAX_PURGE_INTERVAL)) {
+			purge();
+		}
+	}
+
+	/**
+	 * Refresh the modification time of a content stored again, so the retention starts over.
+	 */
+	private static boolean touch(Path target) throws IOException {
+		try {
+			Files.setLastModifiedTime(target, FileTime.fromMillis(System.currentTimeMillis()));
+			return true;
+		}
+		catch (NoSuchFileException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Load the content stored under the provided key.
+	 * @param key the key.
+	 * @return the content.
+	 * @throws IOException if the content cannot be read, e.g. there is none for the key.
+	 */
+	public byte[] load(String key) throws IOException {
+		return Files.readAllBytes(getFile(key).toPath());
+	}
+
+	/**
+	 * Remove the content stored under the provided key; only safe once no message may
+	 * refer to it any more, see the class documentation.
+	 * @param key the key.
+	 * @return true if the content has been removed.
+	 * @throws IOException if the content cannot be removed.
+	 */
+	public boolean remove(String key) throws IOException {
+		return Files.deleteIfExists(getFile(key).toPath());
+	}
+
+	/**
+	 * Return the file holding the content stored under the provided key.
+	 * @param key the key.
+	 * @return the file; it does not exist if nothing is stored under the key.
+	 */
+	public File getFile(String key) {
+		Assert.isTrue(key != null && KEY_PATTERN.matcher(key).matches(), () -> "Invalid content key: " + key);
+		return this.directory.resolve(key).toFile();
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] bytes) {
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * The compression formats supported for transparent decompression, detected by
+ * file name extension or by the magic bytes at the start of the data, and for the
+ * compression of written files.
+ * <p>
+ * {@link #GZIP} is supported by the JDK; {@link #LZ4} and {@link #BZIP2} require
+ * {@code commons-compress}, and {@link #ZSTD} additionally requires {@code zstd-jni}
+ * on the classpath.
+ *
+ * @since 3.0
+ */
+public enum CompressionFormat {
+
+	GZIP(new byte[] { 0x1f, (byte) 0x8b }, ".gz", ".gzip") {
+
+		@Override
+		public InputStream decompress(InputStream inputStream) throws IOException {
+			return new GZIPInputStream(inputStream, BUFFER_SIZE);
+		}
+
+		@Override
+		public OutputStream compress(OutputStream outputStream) throws IOException {
+			return new GZIPOutputStream(outputStream, BUFFER_SIZE);
+		}
+
+	},
+
+	ZSTD(new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd }, ".zst", ".zstd") {
+
+		@Override
+		public InputStream decompress(InputStream inputStream) throws IOException {
+			assertPresent(COMMONS_COMPRESS_CLASS, "commons-compress");
+			assertPresent("com.github.luben.zstd.ZstdInputStream", "zstd-jni");
+			return CommonsCompress.zstd(inputStream);
+		}
+
+		@Override
+		public OutputStream compress(OutputStream outputStream) throws IOException {
+			assertPresent(COMMONS_COMPRESS_CLASS, "commons-compress");
+			assertPresent("com.github.luben.zstd.ZstdOutputStream", "zstd-jni");
+			return CommonsCompress.zstd(outputStream);
+		}
+
+	},
+
+	LZ4(new byte[] { 0x04, 0x22, 0x4d, 0x18 }, ".lz4") {
+
+		@Override
+		public InputStream decompress(InputStream inputStream) throws IOException {
+			assertPresent(COMMONS_COMPRESS_CLASS, "commons-compress");
+			return CommonsCompress.lz4(inputStream);
+		}
+
+		@Override
+		public OutputStream compress(OutputStream outputStream) throws IOException {
+			assertPresent(COMMONS_COMPRESS_CLASS, "commons-compress");
+			return CommonsCompress.lz4(outputStream);
+		}
+
+	},
+
+	BZIP2(new byte[] { 0x42, 0x5a, 0x68 }, ".bz2", ".bzip2") {
+
+		private final byte[] blockMagic = { 0x31, 0x41, 0x59, 0x26, 0x53, 0x59 };
+
+		private final byte[] endOfStreamMagic = { 0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90 };
+
+		/**
+		 * {@code BZh} alone is too likely at the start of a text file; also require
+		 * the block size digit and the magic of the first block, or of the end of an
+		 * empty stream.
+		 */
+		@Override
+		boolean matches(byte[] header, int length) {
+			if (length < 10 || !super.matches(header, length) || header[3] < '1' || header[3] > '9') {
+				return false;
+			}
+			byte[] magic = Arrays.copyOfRange(header, 4, 10);
+			return Arrays.equals(magic, this.blockMagic) || Arrays.equals(magic, this.endOfStreamMagic);
+		}
+
+		@Override
+		public InputStream decompress(InputStream inputStream) throws IOException {
+			assertPresent(COMMONS_COMPRESS_CLASS, "commons-compress");
+			return CommonsCompress.bzip2(inputStream);
+		}
+
+		@Override
+		public OutputStream compress(OutputStream outputStream) throws IOException {
+			assertPresent(COMMONS_COMPRESS_CLASS, "commons-compress");
+			return CommonsCompress.bzip2(outputStream);
+		}
+
+	};
+
+	/**
+	 * The number of bytes needed to detect any of the formats by magic bytes.
+	 */
+	public static final int MAGIC_LENGTH = 10;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final String COMMONS_COMPRESS_CLASS =
+			"org.apache.commons.compress.compressors.CompressorInputStream";
+
+	private final byte[] magic;
+
+	private final String[] extensions;
+
+	CompressionFormat(byte[] magic, String... extensions) {
+		this.magic = magic;
+		this.extensions = extensions;
+	}
+
+	/**
+	 * Wrap the provided stream into a decompressing stream for this format.
+	 * @param inputStream the compressed stream.
+	 * @return the decompressed stream.
+	 * @throws IOException if the stream header cannot be read.
+	 */
+	public abstract InputStream decompress(InputStream inputStream) throws IOException;
+
+	/**
+	 * Wrap the provided stream into a compressing stream for this format; closing it
+	 * finishes the compressed data and closes the provided stream.
+	 * @param outputStream the compressed stream.
+	 * @return the stream to write the uncompressed data to.
+	 * @throws IOException if the stream header cannot be written.
+	 */
+	public abstract OutputStream compress(OutputStream outputStream) throws IOException;
+
+	/**
+	 * Return the main file name extension of this format, e.g. {@code .gz}.
+	 * @return the extension.
+	 */
+	public String getExtension() {
+		return this.extensions[0];
+	}
+
+	/**
+	 * Remove this format's extension from the provided file name, if present.
+	 * @param fileName the file name.
+	 * @return the file name without the compression extension.
+	 */
+	public String stripExtension(String fileName) {
+		String extension = extensionOf(fileName);
+		return extension != null ? fileName.substring(0, fileName.length() - extension.length()) : fileName;
+	}
+
+	@Nullable
+	private String extensionOf(String fileName) {
+		String lowerCase = fileName.toLowerCase();
+		for (String extension : this.extensions) {
+			if (lowerCase.endsWith(extension)) {
+				return extension;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Detect the format from the file name extension.
+	 * @param fileName the file name.
+	 * @return the format, or null if the name has no known compression extension.
+	 */
+	@Nullable
+	public static CompressionFormat fromFileName(@Nullable String fileName) {
+		if (fileName != null) {
+			for (CompressionFormat format : values()) {
+				if (format.extensionOf(fileName) != null) {
+					return format;
+				}
+			}
+		}
+		return null;
+	}
+
+	boolean matches(byte[] header, int length) {
+		return length >= this.magic.length
+				&& Arrays.equals(Arrays.copyOf(header, this.magic.length), this.magic);
+	}
+
+	/**
+	 * Detect the format from the magic bytes at the start of the data.
+	 * @param header the first bytes of the data.
+	 * @param length the number of valid bytes in the header.
+	 * @return the format, or null if the data doesn't start with known magic bytes.
+	 */
+	@Nullable
+	public static CompressionFormat fromMagic(byte[] header, int length) {
+		for (CompressionFormat format : values()) {
+			if (format.matches(header, length)) {
+				return format;
+			}
+		}
+		return null;
+	}
+
+	private static void assertPresent(String className, String library) {
+		if (!ClassUtils.isPresent(className, CompressionFormat.class.getClassLoader())) {
+			throw new IllegalStateException("'" + library + "' must be on the classpath for this compression format");
+		}
+	}
+
+	/**
+	 * Isolates the {@code commons-compress} references, so the enum can be loaded without it.
+	 */
+	private static final class CommonsCompress {
+
+		static InputStream zstd(InputStream inputStream) throws IOException {
+			return new ZstdCompressorInputStream(inputStream);
+		}
+
+		static InputStream lz4(InputStream inputStream) throws IOException {
+			return new FramedLZ4CompressorInputStream(inputStream, true);
+		}
+
+		static InputStream bzip2(InputStream inputStream) throws IOException {
+			return new BZip2CompressorInputStream(inputStream, true);
+		}
+
+		static OutputStream zstd(OutputStream outputStream) throws IOException {
+			return new ZstdCompressorOutputStream(outputStream);
+		}
+
+		static OutputStream lz4(OutputStream outputStream) throws IOException {
+			return new FramedLZ4CompressorOutputStream(outputStream);
+		}
+
+		static OutputStream bzip2(OutputStream outputStream) throws IOException {
+			return new BZip2CompressorOutputStream(outputStream);
+		}
+
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.compression;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.transformer.AbstractTransformer;
+import org.springframework.integration.transformer.MessageTransformationException;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+
+/**
+ * Replaces a compressed {@link File}, file path or {@link InputStream} payload with an
+ * {@link InputStream} decompressing it on the fly, so the file is never decompressed
+ * to disk or fully into memory. The {@link CompressionFormat} is detected from the
+ * file name (the {@link FileHeaders#REMOTE_FILE} or {@link FileHeaders#FILENAME}
+ * header for streams) and, failing that, from the magic bytes.
+ * <p>
+ * Payloads which are not compressed are left untouched, unless
+ * {@link #setStreamUncompressed(boolean) streamUncompressed} is true, in which case
+ * uncompressed files are also opened as streams, so the downstream components only
+ * deal with {@link InputStream} payloads.
+ * <p>
+ * The produced stream is registered as the
+ * {@link IntegrationMessageHeaderAccessor#CLOSEABLE_RESOURCE closeable resource} of
+ * the message (closing any existing one as well), so the downstream components
+ * release it once consumed.
+ *
+ * @since 3.0
+ */
+public class DecompressingTransformer extends AbstractTransformer {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private boolean streamUncompressed;
+
+	/**
+	 * Set to true to open uncompressed files as streams as well.
+	 * @param streamUncompressed true to always produce an {@link InputStream}.
+	 */
+	public void setStreamUncompressed(boolean streamUncompressed) {
+		this.streamUncompressed = streamUncompressed;
+	}
+
+	@Override
+	protected Object doTransform(Message<?> message) {
+		Object payload = message.getPayload();
+		try {
+			if (payload instanceof File || payload instanceof String) {
+				File file = payload instanceof File ? (File) payload : new File((String) payload);
+				BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+				CompressionFormat format = detect(file.getName(), inputStream);
+				if (format == null && !this.streamUncompressed) {
+					inputStream.close();
+					return message;
+				}
+				return buildMessage(message, format, inputStream, file);
+			}
+			else if (payload instanceof InputStream) {
+				InputStream inputStream = (InputStream) payload;
+				if (!inputStream.markSupported()) {
+					inputStream = new BufferedInputStream(inputStream, BUFFER_SIZE);
+				}
+				String fileName = message.getHeaders().get(FileHeaders.REMOTE_FILE, String.class);
+				if (fileName == null) {
+					fileName = message.getHeaders().get(FileHeaders.FILENAME, String.class);
+				}
+				CompressionFormat format = detect(fileName, inputStream);
+				if (format == null && inputStream == payload) {
+					return message;
+				}
+				return buildMessage(message, format, inputStream, null);
+			}
+			return message;
+		}
+		catch (IOException e) {
+			throw new MessageTransformationException(message, "Failed to open a decompressing stream", e);
+		}
+	}
+
+	private Message<?> buildMessage(Message<?> message, @Nullable CompressionFormat format, InputStream inputStream,
+			@Nullable File file) throws IOException {
+
+		InputStream stream;
+		try {
+			stream = format != null ? format.decompress(inputStream) : inputStream;
+		}
+		catch (IOException | RuntimeException e) {
+			inputStream.close();
+			throw e;
+		}
+		Closeable existing = StaticMessageHeaderAccessor.getCloseableResource(message);
+		Closeable closeable = existing == null
+				? stream
+				: () -> {
+					try {
+						stream.close();
+					}
+					finally {
+						existing.close();
+					}
+				};
+		return getMessageBuilderFactory()
+				.withPayload(stream)
+				.copyHeaders(message.getHeaders())
+				.setHeader(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE, closeable)
+				.setHeaderIfAbsent(FileHeaders.ORIGINAL_FILE, file)
+				.setHeaderIfAbsent(FileHeaders.FILENAME, file != null ? file.getName() : null)
+				.build();
+	}
+
+	@Nullable
+	private static CompressionFormat detect(@Nullable String fileName, InputStream inputStream) throws IOException {
+		CompressionFormat format = CompressionFormat.fromFileName(fileName);
+		if (format == null) {
+			byte[] header = new byte[CompressionFormat.MAGIC_LENGTH];
+			inputStream.mark(header.length);
+			int length = 0;
+			int read;
+			while (length < header.length && (read = inputStream.read(header, length, header.length - length)) > 0) {
+				length += read;
+			}
+			inputStream.reset();
+			format = CompressionFormat.fromMagic(header, length);
+		}
+		return format;
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.filter;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.integration.file.filters.AbstractFileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.util.Assert;
+
+/**
+ * An accept-once filter persisting the path, last modified time and size fingerprint of
+ * the accepted files in a {@link ConcurrentMetadataStore}, with a {@link BloomFilter}
+ * of the fingerprints in front of it, so the files known to be processed are rejected
+ * without a metadata store round trip and without holding them all in the heap.
+ * <p>
+ * A file whose fingerprint is not in the Bloom filter is checked against, and recorded
+ * in, the metadata store (one round trip); after a restart, each file is therefore
+ * checked once and then known to the Bloom filter again. A file is accepted again once
+ * modified, its fingerprint changing. A new file can be wrongly rejected with the false
+ * positive probability of the Bloom filter, unless {@link #setVerifyHits(boolean)
+ * verifyHits} is true, in which case the metadata store is also checked for the files
+ * found in the Bloom filter, costing a round trip per file and poll; the unverified
+ * rejections are logged at debug level.
+ * <p>
+ * Rolling back a file, e.g. one accepted but left for a later poll, removes it like
+ * {@link #remove(File)}, so it is accepted again. The removed files are tracked until
+ * accepted again, as the Bloom filter still contains them; the ones deleted meanwhile
+ * are pruned, so that set stays bounded by the existing files.
+ *
+ * @since 3.0
+ */
+public class BloomAcceptOnceFileListFilter extends AbstractFileListFilter<File>
+		implements ResettableFileListFilter<File>, ReversibleFileListFilter<File> {
+
+	private static final Log logger = LogFactory.getLog(BloomAcceptOnceFileListFilter.class);
+
+	private static final int MIN_PRUNE_THRESHOLD = 1024;
+
+	private final ConcurrentMetadataStore metadataStore;
+
+	private final BloomFilter bloomFilter;
+
+	private final Set<String> removed = ConcurrentHashMap.newKeySet();
+
+	private String keyPrefix = "file-processed:";
+
+	private boolean verifyHits;
+
+	private volatile int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+	/**
+	 * Construct an instance with the provided metadata store and Bloom filter sizing.
+	 * @param metadataStore the metadata store.
+	 * @param expectedEntries the expected number of processed files.
+	 * @param falsePositiveProbability the Bloom filter false positive probability.
+	 */
+	public BloomAcceptOnceFileListFilter(ConcurrentMetadataStore metadataStore, long expectedEntries,
+			double falsePositiveProbability) {
+
+		Assert.notNull(metadataStore, "'metadataStore' must not be null");
+		this.metadataStore = metadataStore;
+		this.bloomFilter = new BloomFilter(expectedEntries, falsePositiveProbability);
+	}
+
+	/**
+	 * Set the prefix of the metadata store keys, followed by the absolute file path;
+	 * defaults to {@code file-processed:}.
+	 * @param keyPrefix the key prefix.
+	 */
+	public void setKeyPrefix(String keyPrefix) {
+		Assert.notNull(keyPrefix, "'keyPrefix' must not be null");
+		this.keyPrefix = keyPrefix;
+	}
+
+	/**
+	 * Set to true to check the metadata store for the files found in the Bloom filter
+	 * as well, trading round trips for no false positive.
+	 * @param verifyHits true to verify the Bloom filter hits.
+	 */
+	public void setVerifyHits(boolean verifyHits) {
+		this.verifyHits = verifyHits;
+	}
+
+	@Override
+	public boolean accept(File file) {
+		String key = this.keyPrefix + file.getAbsolutePath();
+		String value = file.lastModified() + ":" + file.length();
+		String fingerprint = key + '|' + value;
+		if (this.bloomFilter.mightContain(fingerprint) && !this.removed.contains(key)) {
+			if (!this.verifyHits) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Skipping " + file + ": found in the Bloom filter, not verified");
+				}
+				return false;
+			}
+			if (value.equals(this.metadataStore.get(key))) {
+				return false;
+			}
+		}
+		boolean accepted = record(key, value);
+		this.bloomFilter.put(fingerprint);
+		if (accepted) {
+			this.removed.remove(key);
+		}
+		return accepted;
+	}
+
+	private boolean record(String key, String value) {
+		String previous = this.metadataStore.putIfAbsent(key, value);
+		while (previous != null) {
+			if (previous.equals(value)) {
+				return false;
+			}
+			if (this.metadataStore.replace(key, previous, value)) {
+				return true;
+			}
+			previous = this.metadataStore.putIfAbsent(key, value);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean remove(File file) {
+		String key = this.keyPrefix + file.getAbsolutePath();
+		if (file.exists()) {
+			this.removed.add(key);
+			if (this.removed.size() > this.pruneThreshold) {
+				pruneRemoved();
+			}
+		}
+		else {
+			// a file created again under that path gets another fingerprint
+			this.removed.remove(key);
+		}
+		return this.metadataStore.remove(key) != null;
+	}
+
+	/**
+	 * Forget the removed files deleted since, raising the threshold of the next pruning
+	 * if most of them still exist.
+	 */
+	private synchronized void pruneRemoved() {
+		if (this.removed.size() <= this.pruneThreshold) {
+			return;
+		}
+		int prefixLength = this.keyPrefix.length();
+		this.removed.removeIf(key -> !new File(key.substring(prefixLength)).exists());
+		this.pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, this.removed.size() * 2);
+	}
+
+	@Override
+	public void rollback(File file, List<File> files) {
+		boolean rollingBack = false;
+		for (File candidate : files) {
+			if (candidate.equals(file)) {
+				rollingBack = true;
+			}
+			if (rollingBack) {
+				remove(candidate);
+			}
+		}
+	}
+
+}
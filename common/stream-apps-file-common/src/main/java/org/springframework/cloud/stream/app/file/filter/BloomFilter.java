@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * A thread-safe Bloom filter of strings: {@link #mightContain(String)} never returns
+ * false for a string which has been {@link #put(String) put}, and returns true for
+ * other strings with about the false positive probability the filter is sized for.
+ *
+ * @since 3.0
+ */
+public class BloomFilter {
+
+	private final AtomicLongArray bits;
+
+	private final long bitCount;
+
+	private final int hashCount;
+
+	/**
+	 * Construct a filter sized for the provided number of entries and false positive
+	 * probability.
+	 * @param expectedEntries the expected number of entries.
+	 * @param falsePositiveProbability the false positive probability at that number of entries.
+	 */
+	public BloomFilter(long expectedEntries, double falsePositiveProbability) {
+		Assert.isTrue(expectedEntries > 0, "'expectedEntries' must be greater than 0");
+		Assert.isTrue(falsePositiveProbability > 0 && falsePositiveProbability < 1,
+				"'falsePositiveProbability' must be between 0 and 1");
+		long bitCount = (long) Math.ceil(-expectedEntries * Math.log(falsePositiveProbability)
+				/ (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, (bitCount + 63) / 64);
+		this.bits = new AtomicLongArray(words);
+		this.bitCount = words * 64L;
+		this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / expectedEntries * Math.log(2)));
+	}
+
+	/**
+	 * Add the provided string to the filter.
+	 * @param value the string.
+	 */
+	public void put(String value) {
+		long[] hashes = hash(value);
+		for (int i = 0; i < this.hashCount; i++) {
+			long bit = index(hashes, i);
+			int word = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current;
+			while (((current = this.bits.get(word)) & mask) == 0) {
+				if (this.bits.compareAndSet(word, current, current | mask)) {
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return false if the provided string has definitely not been added to the filter.
+	 * @param value the string.
+	 * @return true if the string might have been added.
+	 */
+	public boolean mightContain(String value) {
+		long[] hashes = hash(value);
+		for (int i = 0; i < this.hashCount; i++) {
+			long bit = index(hashes, i);
+			if ((this.bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long index(long[] hashes, int i) {
+		long combined = hashes[0] + i * hashes[1];
+		return (combined & Long.MAX_VALUE) % this.bitCount;
+	}
+
+	private static long[] hash(String value) {
+		long h1 = 0xcbf29ce484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			h1 ^= b;
+			h1 *= 0x100000001b3L;
+		}
+		return new long[] { mix(h1), mix(h1 ^ 0x9e3779b97f4a7c15L) | 1 };
+	}
+
+	private static long mix(long value) {
+		long z = value;
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+}
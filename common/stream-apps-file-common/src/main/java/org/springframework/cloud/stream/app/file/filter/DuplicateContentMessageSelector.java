@@ -0,0 +1,214 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.cloud.stream.app.file.FileUtils;
+import org.springframework.integration.core.MessageSelector;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link MessageSelector} rejecting the file messages whose content has already been
+ * accepted under another path, e.g. the same file dropped again under a new name. The
+ * SHA-256 digest of the content is recorded with the file path in a
+ * {@link ConcurrentMetadataStore}, shared by all the instances and kept across
+ * restarts; a file with the recorded path is accepted, its reprocessing being up to the
+ * file list filter. Any other payload is accepted.
+ * <p>
+ * With a {@code byte[]} or {@link ByteBuffer} payload, the contents already read by the
+ * reading mode, the digest is computed in memory, the path being the
+ * {@link FileHeaders#ORIGINAL_FILE} header. With a {@link File} (or file path) payload,
+ * for the reading modes which stream the file, the file is read once more by this
+ * selector, through a direct buffer, before being read by the reading mode, usually
+ * from the page cache then.
+ * <p>
+ * The content is recorded when the file is accepted, before being processed, as with
+ * the accept-once file list filters. With the {@link #rollbackInterceptor()} on the
+ * output channel of the filter, the record is removed if the processing of the file
+ * fails on the sending thread, so a later copy is accepted again.
+ * <p>
+ * A rejected message is dropped, so its
+ * {@link org.springframework.integration.StaticMessageHeaderAccessor#getCloseableResource
+ * closeable resource}, e.g. the {@code PooledBuffer} of a pooled {@link ByteBuffer}
+ * payload, is closed by this selector.
+ *
+ * @since 3.0
+ */
+public class DuplicateContentMessageSelector implements MessageSelector {
+
+	private static final Log logger = LogFactory.getLog(DuplicateContentMessageSelector.class);
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final ConcurrentMetadataStore metadataStore;
+
+	private final ThreadLocal<ByteBuffer> buffers =
+			ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+	private final Map<UUID, String> uncommitted = new ConcurrentHashMap<>();
+
+	private volatile boolean rollback;
+
+	private String keyPrefix = "file-content:";
+
+	/**
+	 * Construct an instance with the provided metadata store for the digests.
+	 * @param metadataStore the metadata store.
+	 */
+	public DuplicateContentMessageSelector(ConcurrentMetadataStore metadataStore) {
+		Assert.notNull(metadataStore, "'metadataStore' must not be null");
+		this.metadataStore = metadataStore;
+	}
+
+	/**
+	 * Set the prefix of the metadata store keys, followed by the hex content digest;
+	 * defaults to {@code file-content:}.
+	 * @param keyPrefix the key prefix.
+	 */
+	public void setKeyPrefix(String keyPrefix) {
+		Assert.notNull(keyPrefix, "'keyPrefix' must not be null");
+		this.keyPrefix = keyPrefix;
+	}
+
+	@Override
+	public boolean accept(Message<?> message) {
+		Object payload = message.getPayload();
+		File file;
+		String digest;
+		if (payload instanceof File || payload instanceof String) {
+			file = payload instanceof File ? (File) payload : new File((String) payload);
+			try {
+				digest = digest(file);
+			}
+			catch (IOException e) {
+				throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+			}
+		}
+		else if (payload instanceof byte[] || payload instanceof ByteBuffer) {
+			file = message.getHeaders().get(FileHeaders.ORIGINAL_FILE, File.class);
+			if (file == null) {
+				return true;
+			}
+			MessageDigest messageDigest = newMessageDigest();
+			if (payload instanceof byte[]) {
+				messageDigest.update((byte[]) payload);
+			}
+			else {
+				messageDigest.update(((ByteBuffer) payload).duplicate());
+			}
+			digest = hex(messageDigest.digest());
+		}
+		else {
+			return true;
+		}
+		String path = file.getAbsolutePath();
+		String key = this.keyPrefix + digest;
+		String previous = this.metadataStore.putIfAbsent(key, path);
+		if (previous == null) {
+			if (this.rollback) {
+				this.uncommitted.put(message.getHeaders().getId(), key);
+			}
+			return true;
+		}
+		if (previous.equals(path)) {
+			return true;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Skipping " + path + ": same content as " + previous);
+		}
+		FileUtils.closeResource(message);
+		return false;
+	}
+
+	/**
+	 * Return an interceptor for the output channel of the filter, removing the record of
+	 * the content of a file whose processing fails within the send to that channel. The
+	 * failures after a hand-off to another thread are not seen.
+	 * @return the channel interceptor.
+	 */
+	public ChannelInterceptor rollbackInterceptor() {
+		this.rollback = true;
+		return new ChannelInterceptor() {
+
+			@Override
+			public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent,
+					@Nullable Exception ex) {
+
+				String key = DuplicateContentMessageSelector.this.uncommitted.remove(message.getHeaders().getId());
+				if (key != null && ex != null) {
+					DuplicateContentMessageSelector.this.metadataStore.remove(key);
+				}
+			}
+
+		};
+	}
+
+	private String digest(File file) throws IOException {
+		MessageDigest messageDigest = newMessageDigest();
+		ByteBuffer buffer = this.buffers.get();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			buffer.clear();
+			while (channel.read(buffer) >= 0) {
+				buffer.flip();
+				messageDigest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return hex(messageDigest.digest());
+	}
+
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String hex(byte[] bytes) {
+		char[] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+
+}
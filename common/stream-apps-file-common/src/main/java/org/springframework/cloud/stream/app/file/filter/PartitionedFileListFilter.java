@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file.filter;
+
+import java.io.File;
+
+import org.springframework.integration.file.filters.AbstractFileListFilter;
+import org.springframework.util.Assert;
+
+/**
+ * A filter accepting the share of the files owned by one of the instances of a scaled-out
+ * source, so the instances split a shared directory between them instead of all listing
+ * every file and contending on the metadata store for each of them.
+ * <p>
+ * A file is owned by the instance with the highest rendezvous (highest random weight)
+ * hash of its name and the instance index: ownership is deterministic, needs no
+ * coordination, and changing the instance count only moves the files of the instances
+ * added or removed. The file name is hashed rather than the absolute path, so the
+ * instances can mount the directory at different locations.
+ * <p>
+ * The filter is stateless and should come first in a composite, before any accept-once
+ * filter, so the files of the other instances are never recorded.
+ *
+ * @since 3.0
+ */
+public class PartitionedFileListFilter extends AbstractFileListFilter<File> {
+
+	private final int instanceIndex;
+
+	private final int instanceCount;
+
+	/**
+	 * Construct an instance accepting the files owned by the provided instance.
+	 * @param instanceIndex the index of this instance, from 0.
+	 * @param instanceCount the number of instances.
+	 */
+	public PartitionedFileListFilter(int instanceIndex, int instanceCount) {
+		Assert.isTrue(instanceCount > 0, "'instanceCount' must be greater than 0");
+		Assert.isTrue(instanceIndex >= 0 && instanceIndex < instanceCount,
+				"'instanceIndex' must be between 0 and 'instanceCount' - 1");
+		this.instanceIndex = instanceIndex;
+		this.instanceCount = instanceCount;
+	}
+
+	@Override
+	public boolean accept(File file) {
+		return owner(file.getName(), this.instanceCount) == this.instanceIndex;
+	}
+
+	/**
+	 * Return the index of the instance owning the provided key.
+	 * @param key the key, e.g. a file name.
+	 * @param instanceCount the number of instances.
+	 * @return the owner index.
+	 */
+	public static int owner(String key, int instanceCount) {
+		long keyHash = hash(key);
+		int owner = 0;
+		long highest = Long.MIN_VALUE;
+		for (int i = 0; i < instanceCount; i++) {
+			long weight = mix(keyHash ^ mix(i + 1));
+			if (weight > highest) {
+				highest = weight;
+				owner = i;
+			}
+		}
+		return owner;
+	}
+
+	private static long hash(String key) {
+		// FNV-1a, 64 bits
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	private static long mix(long value) {
+		// the MurmurHash3 64 bit finalizer
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+}
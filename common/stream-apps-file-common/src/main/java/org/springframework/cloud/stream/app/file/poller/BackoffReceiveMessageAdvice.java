@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file.poller;
+
+import java.time.Duration;
+
+import org.springframework.integration.aop.ReceiveMessageAdvice;
+import org.springframework.integration.util.DynamicPeriodicTrigger;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link ReceiveMessageAdvice} adapting the period of a {@link DynamicPeriodicTrigger}
+ * to the work found: the source is polled every {@link #setMinPeriod(Duration) minPeriod}
+ * while messages are received, and the period is multiplied by the
+ * {@link #setMultiplier(double) multiplier} after each empty poll, up to the
+ * {@link #setMaxPeriod(Duration) maxPeriod}. Idle directories and remote servers are
+ * therefore polled less and less often, and a burst of files is picked up at full speed
+ * from the first file found.
+ * <p>
+ * Unlike the {@code SimpleActiveIdleReceiveMessageAdvice}, the period only backs off
+ * after a poll receiving nothing at all: the empty receive ending a poll of several
+ * messages, with a {@code maxMessagesPerPoll} greater than 1, does not count.
+ *
+ * @since 3.0
+ */
+public class BackoffReceiveMessageAdvice implements ReceiveMessageAdvice {
+
+	private final DynamicPeriodicTrigger trigger;
+
+	private volatile Duration minPeriod = Duration.ofSeconds(1);
+
+	private volatile Duration maxPeriod = Duration.ofMinutes(1);
+
+	private volatile double multiplier = 2;
+
+	private volatile boolean received;
+
+	/**
+	 * Construct an instance adapting the period of the provided trigger, which should
+	 * also be the trigger of the poller this advice is applied to.
+	 * @param trigger the trigger.
+	 */
+	public BackoffReceiveMessageAdvice(DynamicPeriodicTrigger trigger) {
+		Assert.notNull(trigger, "'trigger' must not be null");
+		this.trigger = trigger;
+	}
+
+	/**
+	 * Set the period between polls while messages are received; defaults to 1 second.
+	 * @param minPeriod the minimum period.
+	 */
+	public void setMinPeriod(Duration minPeriod) {
+		Assert.isTrue(minPeriod != null && !minPeriod.isNegative(), "'minPeriod' must not be negative");
+		this.minPeriod = minPeriod;
+	}
+
+	/**
+	 * Set the period the backoff stops at; defaults to 1 minute.
+	 * @param maxPeriod the maximum period.
+	 */
+	public void setMaxPeriod(Duration maxPeriod) {
+		Assert.isTrue(maxPeriod != null && !maxPeriod.isNegative(), "'maxPeriod' must not be negative");
+		this.maxPeriod = maxPeriod;
+	}
+
+	/**
+	 * Set the factor the period is multiplied by after an empty poll; defaults to 2.
+	 * @param multiplier the multiplier.
+	 */
+	public void setMultiplier(double multiplier) {
+		Assert.isTrue(multiplier >= 1, "'multiplier' must be at least 1");
+		this.multiplier = multiplier;
+	}
+
+	@Override
+	public Message<?> afterReceive(@Nullable Message<?> result, Object source) {
+		if (result != null) {
+			this.received = true;
+			this.trigger.setDuration(this.minPeriod);
+		}
+		else if (this.received) {
+			// the end of a poll which received messages
+			this.received = false;
+		}
+		else {
+			this.trigger.setDuration(nextPeriod(this.trigger.getDuration()));
+		}
+		return result;
+	}
+
+	private Duration nextPeriod(Duration period) {
+		Duration next = Duration.ofNanos((long) Math.min(Math.max(period.toNanos(), 1_000_000L) * this.multiplier,
+				this.maxPeriod.toNanos()));
+		return next.compareTo(this.minPeriod) < 0 ? this.minPeriod : next;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.readahead;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * An {@link InputStream} over a file, served from the buffer the beginning of the file
+ * is being read ahead into, then from the file itself past the buffer.
+ * Closing the stream releases the buffer once the read-ahead is over.
+ *
+ * @since 3.0
+ */
+class ReadAheadInputStream extends InputStream {
+
+	private final File file;
+
+	private final byte[] buffer;
+
+	private final CompletableFuture<Integer> readAhead;
+
+	private final Runnable release;
+
+	private int length = -1;
+
+	private int position;
+
+	private InputStream remainder;
+
+	private boolean closed;
+
+	ReadAheadInputStream(File file, byte[] buffer, CompletableFuture<Integer> readAhead, Runnable release) {
+		this.file = file;
+		this.buffer = buffer;
+		this.readAhead = readAhead;
+		this.release = release;
+	}
+
+	@Override
+	public int read() throws IOException {
+		byte[] single = new byte[1];
+		int read = read(single, 0, 1);
+		return read < 0 ? -1 : single[0] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int len) throws IOException {
+		if (this.closed) {
+			throw new IOException("Stream closed");
+		}
+		if (len == 0) {
+			return 0;
+		}
+		awaitReadAhead();
+		if (this.position < this.length) {
+			int read = Math.min(len, this.length - this.position);
+			System.arraycopy(this.buffer, this.position, bytes, offset, read);
+			this.position += read;
+			return read;
+		}
+		if (this.length < this.buffer.length) {
+			return -1;
+		}
+		if (this.remainder == null) {
+			this.remainder = new FileInputStream(this.file);
+			long skipped = 0;
+			while (skipped < this.length) {
+				long skip = this.remainder.skip(this.length - skipped);
+				if (skip <= 0) {
+					return -1;
+				}
+				skipped += skip;
+			}
+		}
+		return this.remainder.read(bytes, offset, len);
+	}
+
+	@Override
+	public int available() throws IOException {
+		if (this.closed || !this.readAhead.isDone()) {
+			return 0;
+		}
+		awaitReadAhead();
+		return this.position < this.length
+				? this.length - this.position
+				: (this.remainder != null ? this.remainder.available() : 0);
+	}
+
+	private void awaitReadAhead() throws IOException {
+		if (this.length < 0) {
+			try {
+				this.length = this.readAhead.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading ahead " + this.file, e);
+			}
+			catch (ExecutionException e) {
+				throw new IOException("Failed to read ahead " + this.file, e.getCause());
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			this.readAhead.whenComplete((read, ex) -> this.release.run());
+			if (this.remainder != null) {
+				this.remainder.close();
+			}
+		}
+	}
+
+}
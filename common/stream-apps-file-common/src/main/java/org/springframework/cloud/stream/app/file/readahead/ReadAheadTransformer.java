@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.readahead;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.transformer.AbstractTransformer;
+import org.springframework.integration.transformer.MessageTransformationException;
+import org.springframework.messaging.Message;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Replaces a {@link File} or file path payload with an {@link InputStream} over the
+ * file, the beginning of which is read ahead into a pooled buffer by a background
+ * I/O thread, so opening and reading the next files overlaps with the processing of
+ * the current one when the processing happens on another thread (e.g. behind an
+ * executor channel).
+ * <p>
+ * Up to {@code bufferCount} files are read ahead; when all the buffers are in use,
+ * the transformer blocks until a stream is closed. Files larger than
+ * {@code bufferSize} are read ahead up to that size, the rest being read on demand.
+ * The stream is registered as the
+ * {@link IntegrationMessageHeaderAccessor#CLOSEABLE_RESOURCE closeable resource} of
+ * the message, so the downstream components release its buffer once consumed.
+ * Other payloads are left untouched.
+ *
+ * @since 3.0
+ */
+public class ReadAheadTransformer extends AbstractTransformer implements DisposableBean {
+
+	private final int bufferSize;
+
+	private final Semaphore permits;
+
+	private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+	private final ExecutorService executor;
+
+	/**
+	 * Construct an instance with the provided buffer pool dimensions.
+	 * @param bufferCount the number of files read ahead.
+	 * @param bufferSize the maximum number of bytes read ahead per file.
+	 */
+	public ReadAheadTransformer(int bufferCount, int bufferSize) {
+		Assert.isTrue(bufferCount > 0, "'bufferCount' must be greater than 0");
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be greater than 0");
+		this.bufferSize = bufferSize;
+		this.permits = new Semaphore(bufferCount);
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("file-read-ahead-");
+		threadFactory.setDaemon(true);
+		this.executor = Executors.newFixedThreadPool(bufferCount, threadFactory);
+	}
+
+	@Override
+	protected Object doTransform(Message<?> message) {
+		Object payload = message.getPayload();
+		if (!(payload instanceof File || payload instanceof String)) {
+			return message;
+		}
+		File file = payload instanceof File ? (File) payload : new File((String) payload);
+		byte[] buffer = obtainBuffer(message);
+		CompletableFuture<Integer> readAhead;
+		try {
+			readAhead = CompletableFuture.supplyAsync(() -> read(file, buffer), this.executor);
+		}
+		catch (RuntimeException e) {
+			releaseBuffer(buffer);
+			throw e;
+		}
+		InputStream stream = new ReadAheadInputStream(file, buffer, readAhead, () -> releaseBuffer(buffer));
+		Closeable existing = StaticMessageHeaderAccessor.getCloseableResource(message);
+		Closeable closeable = existing == null
+				? stream
+				: () -> {
+					try {
+						stream.close();
+					}
+					finally {
+						existing.close();
+					}
+				};
+		return getMessageBuilderFactory()
+				.withPayload(stream)
+				.copyHeaders(message.getHeaders())
+				.setHeader(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE, closeable)
+				.setHeaderIfAbsent(FileHeaders.ORIGINAL_FILE, file)
+				.setHeaderIfAbsent(FileHeaders.FILENAME, file.getName())
+				.build();
+	}
+
+	private byte[] obtainBuffer(Message<?> message) {
+		try {
+			this.permits.acquire();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MessageTransformationException(message, "Interrupted while waiting for a read-ahead buffer", e);
+		}
+		byte[] buffer = this.buffers.poll();
+		return buffer != null ? buffer : new byte[this.bufferSize];
+	}
+
+	private void releaseBuffer(byte[] buffer) {
+		this.buffers.offer(buffer);
+		this.permits.release();
+	}
+
+	private static int read(File file, byte[] buffer) {
+		try (InputStream inputStream = new FileInputStream(file)) {
+			int length = 0;
+			int read;
+			while (length < buffer.length && (read = inputStream.read(buffer, length, buffer.length - length)) > 0) {
+				length += read;
+			}
+			return length;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+
+}
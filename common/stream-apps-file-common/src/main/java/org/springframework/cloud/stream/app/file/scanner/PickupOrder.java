@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file.scanner;
+
+/**
+ * Defines the order in which the files accepted by a {@link StreamingDirectoryScanner}
+ * are picked up.
+ *
+ * @since 3.0
+ */
+public enum PickupOrder {
+
+	/**
+	 * The order of the directory listing, as returned by the file system.
+	 */
+	directory,
+
+	/**
+	 * The least recently modified files first.
+	 */
+	oldest,
+
+	/**
+	 * The most recently modified files first.
+	 */
+	newest,
+
+	/**
+	 * The smallest files first.
+	 */
+	smallest,
+
+	/**
+	 * The largest files first.
+	 */
+	largest,
+
+	/**
+	 * In the lexicographic order of the file names.
+	 */
+	name,
+
+	/**
+	 * The files with the highest score of a priority expression first.
+	 */
+	priority
+
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.integration.file.DefaultDirectoryScanner;
+import org.springframework.integration.file.filters.FileListFilter;
+import org.springframework.integration.file.filters.ResettableFileListFilter;
+import org.springframework.integration.file.filters.ReversibleFileListFilter;
+import org.springframework.messaging.MessagingException;
+import org.springframework.util.Assert;
+
+/**
+ * A directory scanner streaming the directory entries with
+ * {@link Files#newDirectoryStream(Path)} instead of building an array of all of them,
+ * and passing them to the filter in bounded batches.
+ * <p>
+ * With a {@link #setMaxEntriesPerPoll(int) maxEntriesPerPoll}, a poll reads at most
+ * that many entries and the next poll resumes the listing where the previous one
+ * stopped, starting over once the end of the directory has been reached, so the cost
+ * of a poll does not depend on the size of the directory. Otherwise each poll lists
+ * the whole directory.
+ * <p>
+ * With a {@link #setSortKey(Function) sortKey}, the accepted files are returned in the
+ * order of their keys, lowest first, e.g. the oldest or smallest files first. With a
+ * {@link #setMaxFilesPerPoll(int) maxFilesPerPoll}, only that many files are kept: the
+ * first ones in directory order or, with a sort key, the lowest ones, in a bounded
+ * priority queue filled as the directory is streamed rather than sorting all of them.
+ * The files left out are rolled back from a {@link ReversibleFileListFilter}, or
+ * removed from a {@link ResettableFileListFilter}, so they are accepted again by a
+ * later poll; any other filter must be stateless.
+ * <p>
+ * A {@code FileReadingMessageSource} queues the returned files in a priority queue of
+ * its own, so it must be created with a comparator on the same key to receive them in
+ * that order.
+ *
+ * @since 3.0
+ */
+public class StreamingDirectoryScanner extends DefaultDirectoryScanner implements Lifecycle {
+
+	private int maxEntriesPerPoll;
+
+	private int batchSize = 1000;
+
+	private Function<File, ? extends Comparable<?>> sortKey;
+
+	private int maxFilesPerPoll;
+
+	private volatile boolean running;
+
+	private DirectoryStream<Path> directoryStream;
+
+	private Iterator<Path> cursor;
+
+	private Path cursorDirectory;
+
+	/**
+	 * Set the maximum number of entries read per poll; defaults to 0, unlimited.
+	 * @param maxEntriesPerPoll the maximum number of entries per poll.
+	 */
+	public void setMaxEntriesPerPoll(int maxEntriesPerPoll) {
+		Assert.isTrue(maxEntriesPerPoll >= 0, "'maxEntriesPerPoll' must not be negative");
+		this.maxEntriesPerPoll = maxEntriesPerPoll;
+	}
+
+	/**
+	 * Set the number of entries passed to the filter at once; defaults to 1000.
+	 * @param batchSize the batch size.
+	 */
+	public void setBatchSize(int batchSize) {
+		Assert.isTrue(batchSize > 0, "'batchSize' must be greater than 0");
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Set the function returning the key the files are sorted on, lowest first;
+	 * computed once per accepted file. Defaults to none: the directory order.
+	 * @param sortKey the sort key function.
+	 */
+	public void setSortKey(Function<File, ? extends Comparable<?>> sortKey) {
+		this.sortKey = sortKey;
+	}
+
+	/**
+	 * Set the maximum number of files returned per poll, the first ones in directory
+	 * order or the ones with the lowest {@link #setSortKey(Function) sortKey}; defaults
+	 * to 0, unlimited.
+	 * @param maxFilesPerPoll the maximum number of files per poll.
+	 */
+	public void setMaxFilesPerPoll(int maxFilesPerPoll) {
+		Assert.isTrue(maxFilesPerPoll >= 0, "'maxFilesPerPoll' must not be negative");
+		this.maxFilesPerPoll = maxFilesPerPoll;
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+	}
+
+	@Override
+	public synchronized void stop() {
+		this.running = false;
+		closeCursor();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	@Override
+	public synchronized List<File> listFiles(File directory) {
+		Selection selection = newSelection();
+		listFiles(directory, selection);
+		return selection.toList();
+	}
+
+	/**
+	 * Stream the entries of the directory, or the next ones with a
+	 * {@link #setMaxEntriesPerPoll(int) maxEntriesPerPoll}, and add the accepted files to
+	 * the selection.
+	 * @param directory the directory.
+	 * @param selection the selection.
+	 */
+	protected synchronized void listFiles(File directory, Selection selection) {
+		Path path = directory.toPath();
+		if (this.cursor == null || !path.equals(this.cursorDirectory)) {
+			closeCursor();
+			try {
+				this.directoryStream = Files.newDirectoryStream(path);
+			}
+			catch (IOException e) {
+				throw new MessagingException("The path [" + directory
+						+ "] does not denote a properly accessible directory.", e);
+			}
+			this.cursor = this.directoryStream.iterator();
+			this.cursorDirectory = path;
+		}
+		List<File> batch = new ArrayList<>(this.batchSize);
+		int entries = 0;
+		try {
+			while ((this.maxEntriesPerPoll == 0 || entries < this.maxEntriesPerPoll) && this.cursor.hasNext()) {
+				batch.add(this.cursor.next().toFile());
+				entries++;
+				if (batch.size() == this.batchSize) {
+					selection.addAll(filter(batch));
+					batch.clear();
+				}
+			}
+			if (!this.cursor.hasNext()) {
+				closeCursor();
+			}
+		}
+		catch (DirectoryIteratorException e) {
+			closeCursor();
+			throw new MessagingException("Failed to list the directory [" + directory + "]", e.getCause());
+		}
+		selection.addAll(filter(batch));
+	}
+
+	/**
+	 * Create a selection of the files to return from a poll, according to the
+	 * {@link #setSortKey(Function) sortKey} and {@link #setMaxFilesPerPoll(int) maxFilesPerPoll}.
+	 * @return the selection.
+	 */
+	protected Selection newSelection() {
+		return new Selection();
+	}
+
+	/**
+	 * Return true if a listing of the directory has been started by a previous poll
+	 * and not completed yet, due to {@link #setMaxEntriesPerPoll(int) maxEntriesPerPoll}.
+	 * @return true if a listing is in progress.
+	 */
+	protected synchronized boolean isListingInProgress() {
+		return this.cursor != null;
+	}
+
+	/**
+	 * Apply the filter, if any, to the provided files.
+	 * @param files the files.
+	 * @return the accepted files.
+	 */
+	protected List<File> filter(List<File> files) {
+		FileListFilter<File> filter = getFilter();
+		if (files.isEmpty() || filter == null) {
+			return files;
+		}
+		return filter.filterFiles(files.toArray(new File[0]));
+	}
+
+	private void release(File file) {
+		FileListFilter<File> filter = getFilter();
+		if (filter instanceof ReversibleFileListFilter) {
+			((ReversibleFileListFilter<File>) filter).rollback(file, Collections.singletonList(file));
+		}
+		else if (filter instanceof ResettableFileListFilter) {
+			((ResettableFileListFilter<File>) filter).remove(file);
+		}
+	}
+
+	private void closeCursor() {
+		if (this.directoryStream != null) {
+			try {
+				this.directoryStream.close();
+			}
+			catch (IOException e) {
+				// ignored
+			}
+			this.directoryStream = null;
+			this.cursor = null;
+			this.cursorDirectory = null;
+		}
+	}
+
+	/**
+	 * The files accepted during a poll, in directory order or, with a sort key, in a
+	 * priority queue; both bounded by the {@code maxFilesPerPoll}.
+	 */
+	protected final class Selection {
+
+		private final List<File> files = new ArrayList<>();
+
+		private final PriorityQueue<Candidate> candidates;
+
+		Selection() {
+			int initialCapacity = StreamingDirectoryScanner.this.maxFilesPerPoll > 0
+					? StreamingDirectoryScanner.this.maxFilesPerPoll + 1
+					: 11;
+			this.candidates = StreamingDirectoryScanner.this.sortKey != null
+					// the head is the file to push out first: the highest key
+					? new PriorityQueue<>(initialCapacity, Comparator.<Candidate>naturalOrder().reversed())
+					: null;
+		}
+
+		/**
+		 * Add accepted files to the selection.
+		 * @param accepted the files.
+		 */
+		public void addAll(List<File> accepted) {
+			int maxFiles = StreamingDirectoryScanner.this.maxFilesPerPoll;
+			if (this.candidates == null) {
+				for (File file : accepted) {
+					if (maxFiles > 0 && this.files.size() == maxFiles) {
+						release(file);
+					}
+					else {
+						this.files.add(file);
+					}
+				}
+				return;
+			}
+			for (File file : accepted) {
+				Candidate candidate = new Candidate(file, StreamingDirectoryScanner.this.sortKey.apply(file));
+				if (maxFiles > 0 && this.candidates.size() == maxFiles) {
+					if (candidate.compareTo(this.candidates.peek()) >= 0) {
+						release(file);
+						continue;
+					}
+					release(this.candidates.poll().file);
+				}
+				this.candidates.offer(candidate);
+			}
+		}
+
+		/**
+		 * Return the selected files, lowest key first.
+		 * @return the files.
+		 */
+		public List<File> toList() {
+			if (this.candidates == null) {
+				return this.files;
+			}
+			List<File> sorted = new ArrayList<>(this.candidates.size());
+			while (!this.candidates.isEmpty()) {
+				sorted.add(this.candidates.poll().file);
+			}
+			Collections.reverse(sorted);
+			return sorted;
+		}
+
+	}
+
+	private static final class Candidate implements Comparable<Candidate> {
+
+		private final File file;
+
+		private final Comparable<Object> key;
+
+		@SuppressWarnings("unchecked")
+		Candidate(File file, Comparable<?> key) {
+			this.file = file;
+			this.key = (Comparable<Object>) key;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			return this.key.compareTo(other.key);
+		}
+
+	}
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.util.Assert;
+
+/**
+ * A directory scanner driven by {@link WatchService} events: once started, a poll only
+ * returns the entries created or modified since the previous poll instead of listing
+ * the whole directory. Only the directory itself is watched, not its subdirectories.
+ * <p>
+ * Since events can be lost (e.g. on overflow), the whole directory is listed again
+ * every {@link #setReconciliationInterval(Duration) reconciliationInterval}, on start
+ * and whenever an overflow is reported, possibly over several polls with a
+ * {@link #setMaxEntriesPerPoll(int) maxEntriesPerPoll}; the filter (accept-once by
+ * default) discards the already processed entries. With an
+ * {@link #setEventWaitTimeout(Duration) eventWaitTimeout}, a poll without pending
+ * events waits for one up to that timeout, so new files are picked up as soon as they
+ * appear even with a long poller interval.
+ * <p>
+ * Any other directory is listed on every poll, as is the watched one when stopped.
+ *
+ * @since 3.0
+ */
+public class WatchingDirectoryScanner extends StreamingDirectoryScanner {
+
+	private static final Log logger = LogFactory.getLog(WatchingDirectoryScanner.class);
+
+	private final Path directory;
+
+	private final Set<Path> pending = new LinkedHashSet<>();
+
+	private long reconciliationIntervalNanos = Duration.ofMinutes(1).toNanos();
+
+	private long eventWaitTimeoutMillis;
+
+	private volatile WatchService watchService;
+
+	private boolean reconcile = true;
+
+	private long lastReconciliation;
+
+	/**
+	 * Construct an instance watching the provided directory.
+	 * @param directory the directory.
+	 */
+	public WatchingDirectoryScanner(File directory) {
+		Assert.notNull(directory, "'directory' must not be null");
+		this.directory = directory.toPath().toAbsolutePath();
+	}
+
+	/**
+	 * Set the interval between two full listings of the directory, catching up with the
+	 * missed events; defaults to 1 minute.
+	 * @param reconciliationInterval the reconciliation interval.
+	 */
+	public void setReconciliationInterval(Duration reconciliationInterval) {
+		Assert.isTrue(reconciliationInterval != null && !reconciliationInterval.isNegative(),
+				"'reconciliationInterval' must not be null or negative");
+		this.reconciliationIntervalNanos = reconciliationInterval.toNanos();
+	}
+
+	/**
+	 * Set the time to wait for an event when none is pending; defaults to 0, not waiting.
+	 * @param eventWaitTimeout the event wait timeout.
+	 */
+	public void setEventWaitTimeout(Duration eventWaitTimeout) {
+		Assert.isTrue(eventWaitTimeout != null && !eventWaitTimeout.isNegative(),
+				"'eventWaitTimeout' must not be null or negative");
+		this.eventWaitTimeoutMillis = eventWaitTimeout.toMillis();
+	}
+
+	@Override
+	public synchronized void start() {
+		super.start();
+		if (this.watchService == null) {
+			try {
+				WatchService watcher = this.directory.getFileSystem().newWatchService();
+				this.directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+				this.watchService = watcher;
+				this.reconcile = true;
+			}
+			catch (IOException e) {
+				logger.error("Failed to watch " + this.directory + "; listing it on every poll instead", e);
+			}
+		}
+	}
+
+	@Override
+	public void stop() {
+		WatchService watcher = this.watchService;
+		if (watcher != null) {
+			this.watchService = null;
+			try {
+				watcher.close();
+			}
+			catch (IOException e) {
+				logger.error("Failed to close the watcher of " + this.directory, e);
+			}
+		}
+		super.stop();
+	}
+
+	@Override
+	public synchronized List<File> listFiles(File directory) {
+		WatchService watcher = this.watchService;
+		if (watcher == null || !this.directory.equals(directory.toPath().toAbsolutePath())) {
+			this.pending.clear();
+			return super.listFiles(directory);
+		}
+		boolean listing = isListingInProgress();
+		boolean reconciliationDue = System.nanoTime() - this.lastReconciliation >= this.reconciliationIntervalNanos;
+		try {
+			pollEvents(watcher, !this.reconcile && !reconciliationDue && !listing && this.pending.isEmpty());
+		}
+		catch (ClosedWatchServiceException e) {
+			this.pending.clear();
+			return super.listFiles(directory);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		List<File> files = new ArrayList<>();
+		this.pending.stream()
+				.filter(Files::exists)
+				.map(Path::toFile)
+				.forEach(files::add);
+		this.pending.clear();
+		Selection selection = newSelection();
+		selection.addAll(filter(files));
+		if (listing || this.reconcile || reconciliationDue) {
+			if (!listing) {
+				this.reconcile = false;
+				this.lastReconciliation = System.nanoTime();
+			}
+			listFiles(directory, selection);
+		}
+		return selection.toList();
+	}
+
+	private void pollEvents(WatchService watcher, boolean wait) throws InterruptedException {
+		WatchKey key = wait && this.eventWaitTimeoutMillis > 0
+				? watcher.poll(this.eventWaitTimeoutMillis, TimeUnit.MILLISECONDS)
+				: watcher.poll();
+		while (key != null) {
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					this.reconcile = true;
+				}
+				else {
+					this.pending.add(this.directory.resolve((Path) event.context()));
+				}
+			}
+			if (!key.reset()) {
+				logger.warn("The watch of " + this.directory + " is no longer valid; listing it on every poll");
+				this.reconcile = true;
+				this.reconciliationIntervalNanos = 0;
+			}
+			key = watcher.poll();
+		}
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Map;
+
+import org.springframework.cloud.stream.app.file.FileUtils;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.splitter.AbstractMessageSplitter;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.Message;
+
+/**
+ * Base class for splitters reading a {@link File} or a {@link String} (file path)
+ * payload and, if supported by the subclass, an {@link InputStream} payload. Any
+ * other payload is returned by {@link #splitMessage(Message)} as is.
+ * The {@link FileHeaders#ORIGINAL_FILE} and {@link FileHeaders#FILENAME} headers are
+ * added to the messages emitted for files, if not present already.
+ *
+ * @since 3.0
+ */
+public abstract class AbstractFileSplitter extends AbstractMessageSplitter {
+
+	@Override
+	protected final Object splitMessage(Message<?> message) {
+		if (message.getPayload() instanceof InputStream) {
+			return splitStream(message, (InputStream) message.getPayload());
+		}
+		File file = fileFromPayload(message.getPayload());
+		if (file == null) {
+			return message;
+		}
+		return splitFile(message, file);
+	}
+
+	/**
+	 * Split the provided file; usually returns an iterator which reads the file
+	 * during iteration.
+	 * @param message the message.
+	 * @param file the file from the message payload.
+	 * @return the result of splitting the file.
+	 */
+	protected abstract Object splitFile(Message<?> message, File file);
+
+	/**
+	 * Split the provided stream, e.g. a decompressed file or a remote file streamed
+	 * from the server. This implementation returns the message as is.
+	 * @param message the message.
+	 * @param inputStream the stream from the message payload.
+	 * @return the result of splitting the stream.
+	 */
+	protected Object splitStream(Message<?> message, InputStream inputStream) {
+		return message;
+	}
+
+	@Override
+	protected boolean willAddHeaders(Message<?> message) {
+		return fileFromPayload(message.getPayload()) != null;
+	}
+
+	@Override
+	protected void addHeaders(Message<?> message, Map<String, Object> headers) {
+		File file = fileFromPayload(message.getPayload());
+		if (file != null) {
+			headers.putIfAbsent(FileHeaders.ORIGINAL_FILE, file);
+			headers.putIfAbsent(FileHeaders.FILENAME, file.getName());
+		}
+	}
+
+	/**
+	 * Close the {@link StaticMessageHeaderAccessor#getCloseableResource closeable resource}
+	 * of the message, if any; to be called when the file has been consumed.
+	 * @param message the message.
+	 */
+	protected static void closeResource(Message<?> message) {
+		FileUtils.closeResource(message);
+	}
+
+	@Nullable
+	private static File fileFromPayload(Object payload) {
+		if (payload instanceof File) {
+			return (File) payload;
+		}
+		else if (payload instanceof String) {
+			return new File((String) payload);
+		}
+		return null;
+	}
+
+}
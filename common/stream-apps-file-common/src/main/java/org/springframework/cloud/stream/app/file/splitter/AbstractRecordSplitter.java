@@ -0,0 +1,260 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+
+/**
+ * Base class for splitters emitting the binary records of a file as {@code byte[]}
+ * payloads, with the position of each record in the file in the
+ * {@link FileReadingHeaders#OFFSET} header.
+ * <p>
+ * The file (or {@link InputStream} payload) is read through a direct buffer, taken
+ * from a pool of the splitter for the time of the iteration, so the buffers are reused
+ * across files. Records larger than the buffer are read straight into their payload.
+ * A file ending in the middle of a record fails the iteration, or fails before the
+ * first record when {@link #checkFileSize(long)} detects it upfront.
+ *
+ * @since 3.0
+ */
+public abstract class AbstractRecordSplitter extends AbstractFileSplitter {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final int MAX_RECORD_LENGTH = Integer.MAX_VALUE - 8;
+
+	private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+	private final int headerLength;
+
+	private final int bufferSize;
+
+	/**
+	 * Construct an instance for records preceded by a header of the provided length.
+	 * @param headerLength the length of the header preceding each record, possibly 0.
+	 * @param minBufferSize the minimum size of the read buffer.
+	 */
+	protected AbstractRecordSplitter(int headerLength, int minBufferSize) {
+		this.headerLength = headerLength;
+		this.bufferSize = Math.max(DEFAULT_BUFFER_SIZE, Math.max(headerLength, minBufferSize));
+	}
+
+	/**
+	 * Read the length of the next record, consuming its header from the buffer, if any.
+	 * At least the header length (or 1 byte, without header) is remaining in the buffer.
+	 * @param buffer the buffer.
+	 * @return the length of the record.
+	 */
+	protected abstract long readRecordLength(ByteBuffer buffer);
+
+	/**
+	 * Return the number of records in a file of the provided size, if known upfront.
+	 * @param fileSize the file size.
+	 * @return the number of records, or -1 if unknown.
+	 */
+	protected long recordCount(long fileSize) {
+		return -1;
+	}
+
+	/**
+	 * Check the size of a file before any of its records is emitted.
+	 * @param fileSize the file size.
+	 * @throws IOException if the file cannot hold a whole number of records.
+	 */
+	protected void checkFileSize(long fileSize) throws IOException {
+	}
+
+	/**
+	 * Prepare the buffer taken from the pool before reading a file, e.g. to set its
+	 * byte order.
+	 * @param buffer the buffer.
+	 */
+	protected void prepareBuffer(ByteBuffer buffer) {
+	}
+
+	@Override
+	protected Object splitFile(Message<?> message, File file) {
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				long size = channel.size();
+				checkFileSize(size);
+				return new RecordIterator(message, channel, recordCount(size));
+			}
+			catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+		}
+		catch (IOException e) {
+			throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+		}
+	}
+
+	@Override
+	protected Object splitStream(Message<?> message, InputStream inputStream) {
+		return new RecordIterator(message, Channels.newChannel(inputStream), -1);
+	}
+
+	@Override
+	protected int obtainSizeIfPossible(Iterator<?> iterator) {
+		if (iterator instanceof RecordIterator) {
+			long records = ((RecordIterator) iterator).recordCount;
+			return records < 0 || records > Integer.MAX_VALUE ? 0 : (int) records;
+		}
+		return 0;
+	}
+
+	private ByteBuffer obtainBuffer() {
+		ByteBuffer buffer = this.buffers.poll();
+		if (buffer == null) {
+			buffer = ByteBuffer.allocateDirect(this.bufferSize);
+		}
+		buffer.clear();
+		buffer.flip();
+		prepareBuffer(buffer);
+		return buffer;
+	}
+
+	private final class RecordIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final ReadableByteChannel channel;
+
+		private final long recordCount;
+
+		private ByteBuffer buffer;
+
+		private byte[] record;
+
+		private long recordOffset;
+
+		private long position;
+
+		RecordIterator(Message<?> message, ReadableByteChannel channel, long recordCount) {
+			this.message = message;
+			this.channel = channel;
+			this.recordCount = recordCount;
+			this.buffer = obtainBuffer();
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.record == null && this.buffer != null) {
+				try {
+					this.record = readRecord();
+				}
+				catch (IOException | RuntimeException e) {
+					close();
+					throw new MessageHandlingException(this.message, "Failed to read record at offset "
+							+ this.position, e);
+				}
+				if (this.record == null) {
+					close();
+				}
+			}
+			return this.record != null;
+		}
+
+		private byte[] readRecord() throws IOException {
+			int headerLength = AbstractRecordSplitter.this.headerLength;
+			if (!fill(Math.max(headerLength, 1))) {
+				if (this.buffer.hasRemaining()) {
+					throw new IOException("Truncated record header");
+				}
+				return null;
+			}
+			this.recordOffset = this.position;
+			long length = readRecordLength(this.buffer);
+			if (length < 0 || length > MAX_RECORD_LENGTH) {
+				throw new IOException("Invalid record length: " + length);
+			}
+			this.position += headerLength;
+			byte[] bytes = new byte[(int) length];
+			int buffered = Math.min(bytes.length, this.buffer.remaining());
+			this.buffer.get(bytes, 0, buffered);
+			if (buffered < bytes.length) {
+				ByteBuffer rest = ByteBuffer.wrap(bytes, buffered, bytes.length - buffered);
+				while (rest.hasRemaining()) {
+					if (this.channel.read(rest) < 0) {
+						throw new IOException("Truncated record of length " + length);
+					}
+				}
+			}
+			this.position += length;
+			return bytes;
+		}
+
+		private boolean fill(int length) throws IOException {
+			while (this.buffer.remaining() < length) {
+				this.buffer.compact();
+				int read = this.channel.read(this.buffer);
+				this.buffer.flip();
+				if (read < 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			byte[] payload = this.record;
+			this.record = null;
+			return getMessageBuilderFactory()
+					.withPayload(payload)
+					.setHeader(FileReadingHeaders.OFFSET, this.recordOffset);
+		}
+
+		@Override
+		public void close() {
+			if (this.buffer != null) {
+				AbstractRecordSplitter.this.buffers.offer(this.buffer);
+				this.buffer = null;
+				try {
+					this.channel.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+}
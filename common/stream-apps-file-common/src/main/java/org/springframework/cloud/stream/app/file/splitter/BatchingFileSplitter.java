@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.Assert;
+
+/**
+ * A line splitter that emits a {@code List<String>} of lines per message instead of
+ * a message per line, to amortize the per-message overhead over many lines.
+ * <p>
+ * A batch is emitted as soon as it holds {@code maxLines} lines, the next line would
+ * take its lines over {@code maxBytes} bytes in the file charset (line terminators
+ * excluded), or the {@code flushTimeout} has elapsed since its first line has been read,
+ * whichever comes first; that next line starts the following batch. A single line
+ * larger than {@code maxBytes} is emitted alone. The last batch of the file may be smaller.
+ * <p>
+ * The batches are pulled by the splitter on the reading thread, so the flush timeout is
+ * only checked as each line is read: on an input which blocks between lines, e.g. a
+ * slowly written stream, a partial batch is held until the next line or the end of the
+ * input.
+ *
+ * @since 3.0
+ */
+public class BatchingFileSplitter extends AbstractFileSplitter {
+
+	private final int maxLines;
+
+	private final long maxBytes;
+
+	private final long flushTimeoutNanos;
+
+	private Charset charset = Charset.defaultCharset();
+
+	/**
+	 * Construct an instance with the provided batch limits.
+	 * @param maxLines the maximum number of lines in a batch.
+	 * @param maxBytes the maximum size of a batch, in bytes of its encoded lines, unless
+	 * a single line is larger.
+	 * @param flushTimeout the maximum time to accumulate a batch.
+	 */
+	public BatchingFileSplitter(int maxLines, long maxBytes, Duration flushTimeout) {
+		Assert.isTrue(maxLines > 0, "'maxLines' must be greater than 0");
+		Assert.isTrue(maxBytes > 0, "'maxBytes' must be greater than 0");
+		Assert.notNull(flushTimeout, "'flushTimeout' must not be null");
+		this.maxLines = maxLines;
+		this.maxBytes = maxBytes;
+		this.flushTimeoutNanos = flushTimeout.toNanos();
+	}
+
+	/**
+	 * Set the charset to decode lines; defaults to the platform charset.
+	 * @param charset the charset.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "'charset' must not be null");
+		this.charset = charset;
+	}
+
+	@Override
+	protected Object splitFile(Message<?> message, File file) {
+		try {
+			return new BatchIterator(message,
+					new BufferedReader(new InputStreamReader(new FileInputStream(file), this.charset)));
+		}
+		catch (IOException e) {
+			throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+		}
+	}
+
+	@Override
+	protected Object splitStream(Message<?> message, InputStream inputStream) {
+		return new BatchIterator(message, new BufferedReader(new InputStreamReader(inputStream, this.charset)));
+	}
+
+	/**
+	 * Return the number of bytes of the line in the charset, without encoding it for the
+	 * common charsets.
+	 */
+	static long encodedLength(String line, Charset charset) {
+		if (StandardCharsets.UTF_8.equals(charset)) {
+			long length = 0;
+			for (int i = 0; i < line.length(); i++) {
+				char c = line.charAt(i);
+				if (c < 0x80) {
+					length++;
+				}
+				else if (c < 0x800) {
+					length += 2;
+				}
+				else if (Character.isHighSurrogate(c) && i + 1 < line.length()
+						&& Character.isLowSurrogate(line.charAt(i + 1))) {
+					length += 4;
+					i++;
+				}
+				else {
+					length += 3;
+				}
+			}
+			return length;
+		}
+		if (StandardCharsets.US_ASCII.equals(charset) || StandardCharsets.ISO_8859_1.equals(charset)) {
+			return line.length();
+		}
+		return line.getBytes(charset).length;
+	}
+
+	private final class BatchIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final BufferedReader reader;
+
+		private List<String> batch;
+
+		private String pending;
+
+		private boolean done;
+
+		BatchIterator(Message<?> message, BufferedReader reader) {
+			this.message = message;
+			this.reader = reader;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.batch == null && !this.done) {
+				try {
+					this.batch = readBatch();
+				}
+				catch (IOException e) {
+					close();
+					throw new MessageHandlingException(this.message, "IOException while iterating", e);
+				}
+			}
+			return this.batch != null;
+		}
+
+		private List<String> readBatch() throws IOException {
+			List<String> lines = new ArrayList<>();
+			long bytes = 0;
+			long batchStart = 0;
+			String line = this.pending;
+			this.pending = null;
+			if (line == null) {
+				line = this.reader.readLine();
+			}
+			while (line != null) {
+				long length = encodedLength(line, BatchingFileSplitter.this.charset);
+				if (!lines.isEmpty() && bytes + length > BatchingFileSplitter.this.maxBytes) {
+					this.pending = line;
+					return lines;
+				}
+				if (lines.isEmpty()) {
+					batchStart = System.nanoTime();
+				}
+				lines.add(line);
+				bytes += length;
+				if (lines.size() >= BatchingFileSplitter.this.maxLines
+						|| bytes >= BatchingFileSplitter.this.maxBytes
+						|| System.nanoTime() - batchStart >= BatchingFileSplitter.this.flushTimeoutNanos) {
+					return lines;
+				}
+				line = this.reader.readLine();
+			}
+			close();
+			return lines.isEmpty() ? null : lines;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			List<String> lines = this.batch;
+			this.batch = null;
+			return lines;
+		}
+
+		@Override
+		public void close() {
+			if (!this.done) {
+				this.done = true;
+				try {
+					this.reader.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+}
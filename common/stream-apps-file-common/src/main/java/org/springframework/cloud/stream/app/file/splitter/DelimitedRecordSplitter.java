@@ -0,0 +1,365 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
+
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.Assert;
+
+/**
+ * A splitter emitting the records of a text file separated by a delimiter, e.g.
+ * the record separator {@code 0x1E} or {@code </item>}, or by the matches of a regular expression, as
+ * {@link String} payloads without the delimiter. Empty records are skipped.
+ * <p>
+ * A literal delimiter is searched in the raw bytes, eight at a time, in a buffer
+ * reused across files, and only the records are decoded; the delimiter is encoded with
+ * the {@link #setCharset(Charset) charset}, which must not produce its bytes inside
+ * other characters, as UTF-8 and single-byte charsets do not. A regular expression is
+ * matched against the decoded text by a {@link Scanner}, which only buffers the text
+ * of the current record.
+ *
+ * @since 3.0
+ */
+public class DelimitedRecordSplitter extends AbstractFileSplitter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final long ONES = 0x0101010101010101L;
+
+	private static final long HIGHS = 0x8080808080808080L;
+
+	private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+	private final String delimiter;
+
+	private final Pattern pattern;
+
+	private Charset charset = Charset.defaultCharset();
+
+	/**
+	 * Construct an instance splitting on the provided literal delimiter.
+	 * @param delimiter the delimiter.
+	 */
+	public DelimitedRecordSplitter(String delimiter) {
+		this(delimiter, false);
+	}
+
+	/**
+	 * Construct an instance splitting on the provided delimiter.
+	 * @param delimiter the delimiter.
+	 * @param regex true if the delimiter is a regular expression.
+	 */
+	public DelimitedRecordSplitter(String delimiter, boolean regex) {
+		Assert.hasLength(delimiter, "'delimiter' must not be empty");
+		this.delimiter = delimiter;
+		this.pattern = regex ? Pattern.compile(delimiter) : null;
+	}
+
+	/**
+	 * Set the charset to decode the records and encode the delimiter; defaults to the
+	 * platform charset.
+	 * @param charset the charset.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "'charset' must not be null");
+		this.charset = charset;
+	}
+
+	@Override
+	protected Object splitFile(Message<?> message, File file) {
+		try {
+			if (this.pattern != null) {
+				return splitStream(message, Files.newInputStream(file.toPath()));
+			}
+			return new DelimiterIterator(message, FileChannel.open(file.toPath(), StandardOpenOption.READ));
+		}
+		catch (IOException e) {
+			throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+		}
+	}
+
+	@Override
+	protected Object splitStream(Message<?> message, InputStream inputStream) {
+		if (this.pattern != null) {
+			return new PatternIterator(message,
+					new Scanner(new InputStreamReader(inputStream, this.charset)).useDelimiter(this.pattern));
+		}
+		return new DelimiterIterator(message, Channels.newChannel(inputStream));
+	}
+
+	/**
+	 * Return the index of the first occurrence of the byte in the range, comparing the
+	 * bytes of each long word at once: the bytes equal to the searched one are zeroed
+	 * by the xor, and the lowest zero byte is the lowest one with its high bit set by
+	 * {@code (x - 0x01..) & ~x & 0x80..}, the borrow only propagating past a zero byte.
+	 * @param bytes the bytes.
+	 * @param words the same bytes as little-endian longs.
+	 * @param from the start of the range.
+	 * @param to the end of the range, exclusive.
+	 * @param b the byte.
+	 * @return the index, or -1 if not found.
+	 */
+	static int indexOf(byte[] bytes, ByteBuffer words, int from, int to, byte b) {
+		long pattern = (b & 0xFFL) * ONES;
+		int i = from;
+		for (; i + Long.BYTES <= to; i += Long.BYTES) {
+			long x = words.getLong(i) ^ pattern;
+			long found = (x - ONES) & ~x & HIGHS;
+			if (found != 0) {
+				return i + (Long.numberOfTrailingZeros(found) >>> 3);
+			}
+		}
+		for (; i < to; i++) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private final class DelimiterIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final ReadableByteChannel channel;
+
+		private final byte[] delimiter = DelimitedRecordSplitter.this.delimiter.getBytes(
+				DelimitedRecordSplitter.this.charset);
+
+		private byte[] buffer;
+
+		private ByteBuffer words;
+
+		private int start;
+
+		private int scanFrom;
+
+		private int limit;
+
+		private boolean eof;
+
+		private String record;
+
+		private boolean closed;
+
+		DelimiterIterator(Message<?> message, ReadableByteChannel channel) {
+			this.message = message;
+			this.channel = channel;
+			byte[] pooled = DelimitedRecordSplitter.this.buffers.poll();
+			setBuffer(pooled != null ? pooled : new byte[BUFFER_SIZE]);
+		}
+
+		private void setBuffer(byte[] buffer) {
+			this.buffer = buffer;
+			this.words = ByteBuffer.wrap(buffer).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.record == null && !this.closed) {
+				try {
+					this.record = readRecord();
+				}
+				catch (IOException e) {
+					close();
+					throw new MessageHandlingException(this.message, "IOException while iterating", e);
+				}
+				if (this.record == null) {
+					close();
+				}
+			}
+			return this.record != null;
+		}
+
+		private String readRecord() throws IOException {
+			while (true) {
+				int end = findDelimiter();
+				if (end >= 0) {
+					int recordStart = this.start;
+					this.start = end + this.delimiter.length;
+					this.scanFrom = this.start;
+					if (end > recordStart) {
+						return decode(recordStart, end);
+					}
+				}
+				else if (this.eof) {
+					int recordStart = this.start;
+					this.start = this.limit;
+					return recordStart < this.limit ? decode(recordStart, this.limit) : null;
+				}
+				else {
+					read();
+				}
+			}
+		}
+
+		/**
+		 * Find the next delimiter from {@code scanFrom}; if not found, advance
+		 * {@code scanFrom} to where the search is to resume once more bytes are read.
+		 */
+		private int findDelimiter() {
+			byte first = this.delimiter[0];
+			int candidate = indexOf(this.buffer, this.words, this.scanFrom, this.limit, first);
+			while (candidate >= 0 && candidate + this.delimiter.length <= this.limit) {
+				if (matches(candidate)) {
+					return candidate;
+				}
+				candidate = indexOf(this.buffer, this.words, candidate + 1, this.limit, first);
+			}
+			this.scanFrom = candidate >= 0 ? candidate : this.limit;
+			return -1;
+		}
+
+		private boolean matches(int index) {
+			for (int i = 1; i < this.delimiter.length; i++) {
+				if (this.buffer[index + i] != this.delimiter[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void read() throws IOException {
+			if (this.start > 0) {
+				System.arraycopy(this.buffer, this.start, this.buffer, 0, this.limit - this.start);
+				this.limit -= this.start;
+				this.scanFrom -= this.start;
+				this.start = 0;
+			}
+			if (this.limit == this.buffer.length) {
+				byte[] grown = new byte[this.buffer.length * 2];
+				System.arraycopy(this.buffer, 0, grown, 0, this.limit);
+				setBuffer(grown);
+			}
+			int read = this.channel.read(ByteBuffer.wrap(this.buffer, this.limit, this.buffer.length - this.limit));
+			if (read < 0) {
+				this.eof = true;
+			}
+			else {
+				this.limit += read;
+			}
+		}
+
+		private String decode(int from, int to) {
+			return new String(this.buffer, from, to - from, DelimitedRecordSplitter.this.charset);
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			String payload = this.record;
+			this.record = null;
+			return payload;
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				if (this.buffer.length == BUFFER_SIZE) {
+					DelimitedRecordSplitter.this.buffers.offer(this.buffer);
+				}
+				try {
+					this.channel.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+	private final class PatternIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final Scanner scanner;
+
+		private String record;
+
+		private boolean closed;
+
+		PatternIterator(Message<?> message, Scanner scanner) {
+			this.message = message;
+			this.scanner = scanner;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (this.record == null && !this.closed) {
+				if (this.scanner.hasNext()) {
+					String next = this.scanner.next();
+					if (!next.isEmpty()) {
+						this.record = next;
+					}
+				}
+				else {
+					IOException exception = this.scanner.ioException();
+					close();
+					if (exception != null) {
+						throw new MessageHandlingException(this.message, "IOException while iterating", exception);
+					}
+				}
+			}
+			return this.record != null;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			String payload = this.record;
+			this.record = null;
+			return payload;
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				this.scanner.close();
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.Assert;
+
+/**
+ * A splitter that maps the file into memory with {@link FileChannel#map} and emits
+ * its contents as fixed-size {@code byte[]} chunks. Only one mapping window is
+ * referenced at a time, so heap usage is bounded by the chunk size regardless of
+ * the file size. The last chunk may be shorter than the chunk size.
+ * <p>
+ * When {@link #setApplySequence(boolean) applySequence} is true (default), the
+ * sequence size is the number of chunks in the file.
+ * An {@link InputStream} payload (e.g. a decompressed file) is read sequentially
+ * into chunks instead; its sequence size is unknown.
+ * Each chunk carries its position in the file in the
+ * {@link FileReadingHeaders#OFFSET} header.
+ *
+ * @since 3.0
+ */
+public class FileChunkSplitter extends AbstractFileSplitter {
+
+	private static final long DEFAULT_WINDOW_SIZE = 64L * 1024 * 1024;
+
+	private final int chunkSize;
+
+	private final long windowSize;
+
+	/**
+	 * Construct an instance for the provided chunk size.
+	 * @param chunkSize the size in bytes of the emitted chunks.
+	 */
+	public FileChunkSplitter(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "'chunkSize' must be greater than 0");
+		this.chunkSize = chunkSize;
+		this.windowSize = Math.max(chunkSize, (DEFAULT_WINDOW_SIZE / chunkSize) * chunkSize);
+	}
+
+	@Override
+	protected Object splitFile(Message<?> message, File file) {
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			return new ChunkIterator(message, channel, channel.size());
+		}
+		catch (IOException e) {
+			throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+		}
+	}
+
+	@Override
+	protected Object splitStream(Message<?> message, InputStream inputStream) {
+		return new StreamChunkIterator(message, inputStream);
+	}
+
+	@Override
+	protected int obtainSizeIfPossible(Iterator<?> iterator) {
+		if (iterator instanceof ChunkIterator) {
+			long chunks = ((ChunkIterator) iterator).chunkCount;
+			return chunks > Integer.MAX_VALUE ? 0 : (int) chunks;
+		}
+		return 0;
+	}
+
+	private final class ChunkIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final FileChannel channel;
+
+		private final long size;
+
+		private final long chunkCount;
+
+		private MappedByteBuffer window;
+
+		private long position;
+
+		private boolean closed;
+
+		ChunkIterator(Message<?> message, FileChannel channel, long size) {
+			this.message = message;
+			this.channel = channel;
+			this.size = size;
+			this.chunkCount = (size + FileChunkSplitter.this.chunkSize - 1) / FileChunkSplitter.this.chunkSize;
+		}
+
+		@Override
+		public boolean hasNext() {
+			boolean hasNext = !this.closed && this.position < this.size;
+			if (!hasNext) {
+				close();
+			}
+			return hasNext;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			try {
+				if (this.window == null || !this.window.hasRemaining()) {
+					this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.position,
+							Math.min(FileChunkSplitter.this.windowSize, this.size - this.position));
+				}
+			}
+			catch (IOException e) {
+				close();
+				throw new MessageHandlingException(this.message, "IOException while mapping file", e);
+			}
+			byte[] chunk = new byte[Math.min(FileChunkSplitter.this.chunkSize, this.window.remaining())];
+			this.window.get(chunk);
+			long offset = this.position;
+			this.position += chunk.length;
+			return getMessageBuilderFactory()
+					.withPayload(chunk)
+					.setHeader(FileReadingHeaders.OFFSET, offset);
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				this.window = null;
+				try {
+					this.channel.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+	private final class StreamChunkIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final InputStream inputStream;
+
+		private byte[] chunk;
+
+		private long position;
+
+		private boolean closed;
+
+		StreamChunkIterator(Message<?> message, InputStream inputStream) {
+			this.message = message;
+			this.inputStream = inputStream;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.chunk == null && !this.closed) {
+				try {
+					this.chunk = readChunk();
+				}
+				catch (IOException e) {
+					close();
+					throw new MessageHandlingException(this.message, "IOException while iterating", e);
+				}
+			}
+			return this.chunk != null;
+		}
+
+		private byte[] readChunk() throws IOException {
+			byte[] buffer = new byte[FileChunkSplitter.this.chunkSize];
+			int length = 0;
+			int read;
+			while (length < buffer.length && (read = this.inputStream.read(buffer, length, buffer.length - length)) > 0) {
+				length += read;
+			}
+			if (length < buffer.length) {
+				close();
+				if (length == 0) {
+					return null;
+				}
+				return Arrays.copyOf(buffer, length);
+			}
+			return buffer;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			byte[] payload = this.chunk;
+			this.chunk = null;
+			long offset = this.position;
+			this.position += payload.length;
+			return getMessageBuilderFactory()
+					.withPayload(payload)
+					.setHeader(FileReadingHeaders.OFFSET, offset);
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				try {
+					this.inputStream.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import org.springframework.integration.file.splitter.FileSplitter;
+
+/**
+ * The END {@link FileSplitter.FileMarker} emitted by the {@link StatisticsFileSplitter},
+ * also reporting the throughput of the file: the time spent reading and decoding the
+ * lines, as opposed to the wall time which also includes the time spent downstream
+ * handling them.
+ *
+ * @since 3.0
+ */
+public class FileStatisticsMarker extends FileSplitter.FileMarker {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long bytesRead;
+
+	private final double decodeTimeMillis;
+
+	private final double wallTimeMillis;
+
+	public FileStatisticsMarker(String filePath, long lineCount, long bytesRead, long decodeTimeNanos,
+			long wallTimeNanos) {
+
+		super(filePath, Mark.END, lineCount);
+		this.bytesRead = bytesRead;
+		this.decodeTimeMillis = decodeTimeNanos / 1e6;
+		this.wallTimeMillis = wallTimeNanos / 1e6;
+	}
+
+	/**
+	 * Return the number of bytes read from the file.
+	 * @return the bytes read, or -1 if unknown.
+	 */
+	public long getBytesRead() {
+		return this.bytesRead;
+	}
+
+	public double getDecodeTimeMillis() {
+		return this.decodeTimeMillis;
+	}
+
+	public double getWallTimeMillis() {
+		return this.wallTimeMillis;
+	}
+
+	public double getLinesPerSecond() {
+		return this.wallTimeMillis > 0 ? getLineCount() * 1000 / this.wallTimeMillis : 0;
+	}
+
+	@Override
+	public String toString() {
+		return "FileStatisticsMarker [filePath=" + getFilePath() + ", lineCount=" + getLineCount()
+				+ ", bytesRead=" + this.bytesRead + ", decodeTimeMillis=" + this.decodeTimeMillis
+				+ ", wallTimeMillis=" + this.wallTimeMillis + ", linesPerSecond=" + getLinesPerSecond() + "]";
+	}
+
+}
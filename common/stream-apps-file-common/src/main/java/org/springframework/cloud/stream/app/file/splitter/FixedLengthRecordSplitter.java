@@ -0,0 +1,67 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.springframework.util.Assert;
+
+/**
+ * A splitter emitting the fixed-length binary records of a file, e.g. a mainframe
+ * extract. When {@link #setApplySequence(boolean) applySequence} is true (default),
+ * the sequence size is the number of records in the file.
+ * <p>
+ * A file whose size is not a multiple of the record length is rejected before any
+ * record is emitted; an {@link java.io.InputStream} payload fails at the truncated
+ * record instead.
+ *
+ * @since 3.0
+ */
+public class FixedLengthRecordSplitter extends AbstractRecordSplitter {
+
+	private final int recordLength;
+
+	/**
+	 * Construct an instance for the provided record length.
+	 * @param recordLength the length in bytes of the records.
+	 */
+	public FixedLengthRecordSplitter(int recordLength) {
+		super(0, recordLength);
+		Assert.isTrue(recordLength > 0, "'recordLength' must be greater than 0");
+		this.recordLength = recordLength;
+	}
+
+	@Override
+	protected long readRecordLength(ByteBuffer buffer) {
+		return this.recordLength;
+	}
+
+	@Override
+	protected void checkFileSize(long fileSize) throws IOException {
+		if (fileSize % this.recordLength != 0) {
+			throw new IOException("File size " + fileSize + " is not a multiple of the record length "
+					+ this.recordLength);
+		}
+	}
+
+	@Override
+	protected long recordCount(long fileSize) {
+		return fileSize / this.recordLength;
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.springframework.util.Assert;
+
+/**
+ * A splitter emitting the binary records of a file, each one preceded by its length
+ * as an unsigned 1, 2, 4 or 8 bytes integer; the prefix is not part of the payload.
+ *
+ * @since 3.0
+ */
+public class LengthPrefixedRecordSplitter extends AbstractRecordSplitter {
+
+	private final int prefixLength;
+
+	private final ByteOrder byteOrder;
+
+	/**
+	 * Construct an instance for the provided length prefix.
+	 * @param prefixLength the length in bytes of the prefix: 1, 2, 4 or 8.
+	 * @param byteOrder the byte order of the prefix.
+	 */
+	public LengthPrefixedRecordSplitter(int prefixLength, ByteOrder byteOrder) {
+		super(prefixLength, 0);
+		Assert.isTrue(prefixLength == 1 || prefixLength == 2 || prefixLength == 4 || prefixLength == 8,
+				"'prefixLength' must be 1, 2, 4 or 8");
+		Assert.notNull(byteOrder, "'byteOrder' must not be null");
+		this.prefixLength = prefixLength;
+		this.byteOrder = byteOrder;
+	}
+
+	@Override
+	protected void prepareBuffer(ByteBuffer buffer) {
+		buffer.order(this.byteOrder);
+	}
+
+	@Override
+	protected long readRecordLength(ByteBuffer buffer) {
+		switch (this.prefixLength) {
+		case 1:
+			return buffer.get() & 0xFFL;
+		case 2:
+			return buffer.getShort() & 0xFFFFL;
+		case 4:
+			return buffer.getInt() & 0xFFFFFFFFL;
+		default:
+			return buffer.getLong();
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.lang.Nullable;
+import org.springframework.messaging.MessageHeaders;
+
+/**
+ * {@link MessageHeaders} of a line message, made of a header block shared by all the
+ * lines of a file and of the per-line {@link #ID}, {@link #TIMESTAMP} and
+ * {@link IntegrationMessageHeaderAccessor#SEQUENCE_NUMBER sequenceNumber}, so no header
+ * map is copied per line. The {@link Map} views combine both without copying them.
+ * <p>
+ * As {@link MessageHeaders#equals(Object)} only compares the raw headers of regular
+ * instances, an instance is only equal to another {@code LineMessageHeaders} with the
+ * same entries, so equality stays symmetric; the hash code is the one of the entries,
+ * as for regular headers.
+ *
+ * @since 3.0
+ */
+final class LineMessageHeaders extends MessageHeaders {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Map<String, Object> shared;
+
+	private final UUID id;
+
+	private final long timestamp;
+
+	private final int sequenceNumber;
+
+	private transient Map<String, Object> entries;
+
+	/**
+	 * Construct an instance with a newly generated id and the current time as timestamp.
+	 * @param shared the shared header block, without id, timestamp and sequence number.
+	 * @param sequenceNumber the sequence number of the line.
+	 */
+	LineMessageHeaders(Map<String, Object> shared, int sequenceNumber) {
+		super(null, ID_VALUE_NONE, -1L);
+		this.shared = shared;
+		this.id = getIdGenerator().generateId();
+		this.timestamp = System.currentTimeMillis();
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	@Override
+	@Nullable
+	public Object get(Object key) {
+		if (ID.equals(key)) {
+			return this.id;
+		}
+		else if (TIMESTAMP.equals(key)) {
+			return this.timestamp;
+		}
+		else if (IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER.equals(key)) {
+			return this.sequenceNumber;
+		}
+		return this.shared.get(key);
+	}
+
+	@Override
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public <T> T get(Object key, Class<T> type) {
+		Object value = get(key);
+		if (value == null) {
+			return null;
+		}
+		if (!type.isAssignableFrom(value.getClass())) {
+			throw new IllegalArgumentException("Incorrect type specified for header '" +
+					key + "'. Expected [" + type + "] but actual type is [" + value.getClass() + "]");
+		}
+		return (T) value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return ID.equals(key) || TIMESTAMP.equals(key)
+				|| IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER.equals(key)
+				|| this.shared.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return entries().containsValue(value);
+	}
+
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return entries().entrySet();
+	}
+
+	@Override
+	public Set<String> keySet() {
+		return entries().keySet();
+	}
+
+	@Override
+	public Collection<Object> values() {
+		return entries().values();
+	}
+
+	@Override
+	public int size() {
+		return this.shared.size() + 3;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return false;
+	}
+
+	@Override
+	protected Map<String, Object> getRawHeaders() {
+		return entries();
+	}
+
+	private Map<String, Object> entries() {
+		Map<String, Object> entries = this.entries;
+		if (entries == null) {
+			entries = new Entries();
+			this.entries = entries;
+		}
+		return entries;
+	}
+
+	private Object writeReplace() {
+		return new Snapshot(entries(), this.id, this.timestamp);
+	}
+
+	@Override
+	public boolean equals(@Nullable Object other) {
+		return this == other
+				|| (other instanceof LineMessageHeaders && entries().equals(((LineMessageHeaders) other).entries()));
+	}
+
+	@Override
+	public int hashCode() {
+		return entries().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return entries().toString();
+	}
+
+	/**
+	 * The read-only view of the per-line entries followed by the shared ones.
+	 */
+	private final class Entries extends AbstractMap<String, Object> {
+
+		private final Set<Map.Entry<String, Object>> entrySet = new AbstractSet<Map.Entry<String, Object>>() {
+
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return LineMessageHeaders.this.size();
+			}
+
+		};
+
+		@Override
+		public Set<Map.Entry<String, Object>> entrySet() {
+			return this.entrySet;
+		}
+
+		@Override
+		public int size() {
+			return LineMessageHeaders.this.size();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return LineMessageHeaders.this.containsKey(key);
+		}
+
+		@Override
+		public Object get(Object key) {
+			return LineMessageHeaders.this.get(key);
+		}
+
+	}
+
+	private final class EntryIterator implements Iterator<Map.Entry<String, Object>> {
+
+		private final Iterator<Map.Entry<String, Object>> shared = LineMessageHeaders.this.shared.entrySet().iterator();
+
+		private int index;
+
+		@Override
+		public boolean hasNext() {
+			return this.index < 3 || this.shared.hasNext();
+		}
+
+		@Override
+		public Map.Entry<String, Object> next() {
+			switch (this.index) {
+			case 0:
+				this.index++;
+				return new AbstractMap.SimpleImmutableEntry<>(ID, LineMessageHeaders.this.id);
+			case 1:
+				this.index++;
+				return new AbstractMap.SimpleImmutableEntry<>(TIMESTAMP, LineMessageHeaders.this.timestamp);
+			case 2:
+				this.index++;
+				return new AbstractMap.SimpleImmutableEntry<>(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER,
+						LineMessageHeaders.this.sequenceNumber);
+			default:
+				if (!this.shared.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return new AbstractMap.SimpleImmutableEntry<>(this.shared.next());
+			}
+		}
+
+	}
+
+	/**
+	 * Regular headers, to which the line headers are serialized.
+	 */
+	private static final class Snapshot extends MessageHeaders {
+
+		private static final long serialVersionUID = 1L;
+
+		Snapshot(Map<String, Object> headers, UUID id, long timestamp) {
+			super(headers, id, timestamp);
+		}
+
+	}
+
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.IntegrationPatternType;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.handler.AbstractReplyProducingMessageHandler;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.GenericMessage;
+import org.springframework.util.Assert;
+
+/**
+ * A line splitter emitting the same messages as a
+ * {@link org.springframework.integration.file.splitter.FileSplitter} without markers,
+ * with fewer allocations per line: the file and sequence headers are built once per
+ * file into an immutable header block shared by all its lines, and each line message
+ * only holds its own id, timestamp and sequence number (see {@link LineMessageHeaders}).
+ * <p>
+ * Reads {@link File}, file path and {@link InputStream} payloads; other payloads are
+ * emitted as is. Not an {@code AbstractMessageSplitter}, which copies the headers for
+ * each split, so it is used with {@code handle()} rather than {@code split()}.
+ *
+ * @since 3.0
+ */
+public class LineMessageSplitter extends AbstractReplyProducingMessageHandler {
+
+	private Charset charset = Charset.defaultCharset();
+
+	/**
+	 * Set the charset to decode lines; defaults to the platform charset.
+	 * @param charset the charset.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "'charset' must not be null");
+		this.charset = charset;
+	}
+
+	@Override
+	public IntegrationPatternType getIntegrationPatternType() {
+		return IntegrationPatternType.splitter;
+	}
+
+	@Override
+	public String getComponentType() {
+		return "file:line-splitter";
+	}
+
+	@Override
+	protected boolean shouldCopyRequestHeaders() {
+		return false;
+	}
+
+	@Override
+	protected Object handleRequestMessage(Message<?> message) {
+		Object payload = message.getPayload();
+		InputStream inputStream;
+		Map<String, Object> headers = message.getHeaders();
+		if (payload instanceof InputStream) {
+			inputStream = (InputStream) payload;
+		}
+		else if (payload instanceof File || payload instanceof String) {
+			File file = payload instanceof File ? (File) payload : new File((String) payload);
+			try {
+				inputStream = new FileInputStream(file);
+			}
+			catch (IOException e) {
+				throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+			}
+			headers = new HashMap<>(headers);
+			headers.putIfAbsent(FileHeaders.ORIGINAL_FILE, file);
+			headers.putIfAbsent(FileHeaders.FILENAME, file.getName());
+		}
+		else {
+			return message;
+		}
+		Map<String, Object> shared = new HashMap<>(getMessageBuilderFactory()
+				.withPayload(payload)
+				.copyHeaders(headers)
+				.pushSequenceDetails(message.getHeaders().getId(), 1, 0)
+				.build()
+				.getHeaders());
+		shared.remove(MessageHeaders.ID);
+		shared.remove(MessageHeaders.TIMESTAMP);
+		shared.remove(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER);
+		return new LineIterator(message, new BufferedReader(new InputStreamReader(inputStream, this.charset)),
+				Collections.unmodifiableMap(shared));
+	}
+
+	@Override
+	protected void produceOutput(Object result, Message<?> requestMessage) {
+		if (result instanceof Iterator<?>) {
+			Iterator<?> iterator = (Iterator<?>) result;
+			try {
+				while (iterator.hasNext()) {
+					super.produceOutput(iterator.next(), requestMessage);
+				}
+			}
+			finally {
+				if (iterator instanceof AutoCloseable) {
+					try {
+						((AutoCloseable) iterator).close();
+					}
+					catch (Exception e) {
+						// ignored
+					}
+				}
+			}
+		}
+		else {
+			super.produceOutput(result, requestMessage);
+		}
+	}
+
+	private static final class LineIterator implements CloseableIterator<Message<String>> {
+
+		private final Message<?> message;
+
+		private final BufferedReader reader;
+
+		private final Map<String, Object> shared;
+
+		private String line;
+
+		private int sequenceNumber;
+
+		private boolean done;
+
+		LineIterator(Message<?> message, BufferedReader reader, Map<String, Object> shared) {
+			this.message = message;
+			this.reader = reader;
+			this.shared = shared;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.line == null && !this.done) {
+				try {
+					this.line = this.reader.readLine();
+				}
+				catch (IOException e) {
+					close();
+					throw new MessageHandlingException(this.message, "IOException while iterating", e);
+				}
+				if (this.line == null) {
+					close();
+				}
+			}
+			return this.line != null;
+		}
+
+		@Override
+		public Message<String> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			String payload = this.line;
+			this.line = null;
+			return new GenericMessage<>(payload, new LineMessageHeaders(this.shared, ++this.sequenceNumber));
+		}
+
+		@Override
+		public void close() {
+			if (!this.done) {
+				this.done = true;
+				try {
+					this.reader.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				AbstractFileSplitter.closeResource(this.message);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.Assert;
+
+/**
+ * A line splitter that cuts the file into newline-aligned byte ranges and decodes
+ * up to {@code parallelism} ranges at once on an {@link Executor}
+ * ({@link ForkJoinPool#commonPool()} by default).
+ * <p>
+ * Lines are still emitted in file order, each carrying its byte offset in the
+ * {@link FileReadingHeaders#OFFSET} header and the index of its range in the
+ * {@link FileReadingHeaders#RANGE_INDEX} header. Lines are terminated by {@code \n}
+ * (an optional preceding {@code \r} is removed), therefore the charset must encode
+ * the line feed as a single {@code 0x0A} byte, e.g. {@code UTF-8} or {@code ISO-8859-1}.
+ *
+ * @since 3.0
+ */
+public class ParallelFileSplitter extends AbstractFileSplitter {
+
+	private static final int ALIGNMENT_BUFFER_SIZE = 8192;
+
+	private final int parallelism;
+
+	private final int rangeSize;
+
+	private Charset charset = Charset.defaultCharset();
+
+	private Executor executor = ForkJoinPool.commonPool();
+
+	/**
+	 * Construct an instance with the provided parallelism and nominal range size.
+	 * @param parallelism the number of ranges decoded at once.
+	 * @param rangeSize the nominal size in bytes of each range; the actual range
+	 * is extended to the end of its last line.
+	 */
+	public ParallelFileSplitter(int parallelism, int rangeSize) {
+		Assert.isTrue(parallelism > 0, "'parallelism' must be greater than 0");
+		Assert.isTrue(rangeSize > 0, "'rangeSize' must be greater than 0");
+		this.parallelism = parallelism;
+		this.rangeSize = rangeSize;
+	}
+
+	/**
+	 * Set the charset to decode lines; defaults to the platform charset.
+	 * @param charset the charset.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "'charset' must not be null");
+		this.charset = charset;
+	}
+
+	/**
+	 * Set the executor to decode ranges on; defaults to {@link ForkJoinPool#commonPool()}.
+	 * @param executor the executor.
+	 */
+	public void setExecutor(Executor executor) {
+		Assert.notNull(executor, "'executor' must not be null");
+		this.executor = executor;
+	}
+
+	@Override
+	protected Object splitFile(Message<?> message, File file) {
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			return new RangeIterator(message, channel, channel.size());
+		}
+		catch (IOException e) {
+			throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+		}
+	}
+
+	private LineRange decodeRange(FileChannel channel, int index, long start, long end) {
+		byte[] bytes = new byte[Math.toIntExact(end - start)];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		try {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, start + buffer.position()) < 0) {
+					break;
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		int length = buffer.position();
+		LineRange range = new LineRange(index);
+		int lineStart = 0;
+		for (int i = 0; i < length; i++) {
+			if (bytes[i] == '\n') {
+				range.add(start + lineStart, decodeLine(bytes, lineStart, i));
+				lineStart = i + 1;
+			}
+		}
+		if (lineStart < length) {
+			range.add(start + lineStart, decodeLine(bytes, lineStart, length));
+		}
+		return range;
+	}
+
+	private String decodeLine(byte[] bytes, int from, int to) {
+		int end = to > from && bytes[to - 1] == '\r' ? to - 1 : to;
+		return new String(bytes, from, end - from, this.charset);
+	}
+
+	private static long alignToLine(FileChannel channel, long position, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(ALIGNMENT_BUFFER_SIZE);
+		long current = position;
+		while (current < size) {
+			buffer.clear();
+			int read = channel.read(buffer, current);
+			if (read < 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return current + i + 1;
+				}
+			}
+			current += read;
+		}
+		return size;
+	}
+
+	private static final class LineRange {
+
+		private final int index;
+
+		private final List<Long> offsets = new ArrayList<>();
+
+		private final List<String> lines = new ArrayList<>();
+
+		LineRange(int index) {
+			this.index = index;
+		}
+
+		void add(long offset, String line) {
+			this.offsets.add(offset);
+			this.lines.add(line);
+		}
+
+	}
+
+	private final class RangeIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final FileChannel channel;
+
+		private final long size;
+
+		private final Deque<CompletableFuture<LineRange>> pending = new ArrayDeque<>();
+
+		private long nextRangeStart;
+
+		private int nextRangeIndex;
+
+		private LineRange current;
+
+		private int lineIndex;
+
+		private boolean closed;
+
+		RangeIterator(Message<?> message, FileChannel channel, long size) {
+			this.message = message;
+			this.channel = channel;
+			this.size = size;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!this.closed) {
+				if (this.current != null && this.lineIndex < this.current.lines.size()) {
+					return true;
+				}
+				submitRanges();
+				CompletableFuture<LineRange> next = this.pending.poll();
+				if (next == null) {
+					close();
+				}
+				else {
+					this.current = await(next);
+					this.lineIndex = 0;
+					submitRanges();
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			int index = this.lineIndex++;
+			return getMessageBuilderFactory()
+					.withPayload(this.current.lines.get(index))
+					.setHeader(FileReadingHeaders.OFFSET, this.current.offsets.get(index))
+					.setHeader(FileReadingHeaders.RANGE_INDEX, this.current.index);
+		}
+
+		private void submitRanges() {
+			while (this.pending.size() < ParallelFileSplitter.this.parallelism && this.nextRangeStart < this.size) {
+				long start = this.nextRangeStart;
+				long end;
+				try {
+					end = alignToLine(this.channel, Math.min(start + ParallelFileSplitter.this.rangeSize, this.size) - 1,
+							this.size);
+				}
+				catch (IOException e) {
+					close();
+					throw new MessageHandlingException(this.message, "IOException while splitting file into ranges", e);
+				}
+				int index = this.nextRangeIndex++;
+				this.nextRangeStart = end;
+				this.pending.add(CompletableFuture.supplyAsync(
+						() -> decodeRange(this.channel, index, start, end), ParallelFileSplitter.this.executor));
+			}
+		}
+
+		private LineRange await(CompletableFuture<LineRange> future) {
+			try {
+				return future.join();
+			}
+			catch (CompletionException e) {
+				close();
+				throw new MessageHandlingException(this.message, "Failed to decode a range of the file", e.getCause());
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				this.current = null;
+				this.pending.forEach(future -> future.cancel(true));
+				this.pending.clear();
+				try {
+					this.channel.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.integration.file.splitter.FileSplitter;
+import org.springframework.integration.support.AbstractIntegrationMessageBuilder;
+import org.springframework.integration.support.json.JsonObjectMapper;
+import org.springframework.integration.support.json.JsonObjectMapperProvider;
+import org.springframework.integration.support.management.metrics.CounterFacade;
+import org.springframework.integration.support.management.metrics.MetricsCaptor;
+import org.springframework.integration.support.management.metrics.TimerFacade;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * A {@link FileSplitter} with markers whose END marker is a {@link FileStatisticsMarker},
+ * reporting the bytes read, lines emitted, decode and wall times and lines per second.
+ * <p>
+ * When the splitter is given a {@link MetricsCaptor}, i.e. Micrometer is enabled for
+ * Spring Integration, the statistics are also published as meters, carrying the common
+ * tags of the registry, such as the stream tags: the {@code file.consumer.files} counter,
+ * the {@code file.consumer.decode} and {@code file.consumer.wall} timers, and the
+ * {@code file.consumer.bytes} and {@code file.consumer.lines} totals.
+ *
+ * @since 3.0
+ */
+public class StatisticsFileSplitter extends FileSplitter {
+
+	private static final String METER_PREFIX = "file.consumer.";
+
+	private final boolean markersJson;
+
+	private final AtomicLong totalBytes = new AtomicLong();
+
+	private final AtomicLong totalLines = new AtomicLong();
+
+	private volatile Meters meters;
+
+	private boolean markersBinary;
+
+	private JsonObjectMapper<?, ?> jsonObjectMapper;
+
+	/**
+	 * Construct an instance emitting the markers as {@link FileSplitter.FileMarker} objects
+	 * or, if {@code markersJson}, as JSON.
+	 * @param markersJson true to emit the markers as JSON.
+	 */
+	public StatisticsFileSplitter(boolean markersJson) {
+		super(true, true, false);
+		this.markersJson = markersJson;
+		if (markersJson) {
+			this.jsonObjectMapper = JsonObjectMapperProvider.newInstance();
+		}
+	}
+
+	/**
+	 * Set to true to emit the markers as {@code byte[]} encoded by the {@link FileMarkerCodec},
+	 * with the {@code application/octet-stream} content type, instead of objects or JSON.
+	 * @param markersBinary true to emit binary markers.
+	 */
+	public void setMarkersBinary(boolean markersBinary) {
+		this.markersBinary = markersBinary;
+	}
+
+	@Override
+	protected Object splitMessage(Message<?> message) {
+		long start = System.nanoTime();
+		CountingInputStream countingInputStream = null;
+		Message<?> toSplit = message;
+		if (message.getPayload() instanceof InputStream) {
+			countingInputStream = new CountingInputStream((InputStream) message.getPayload());
+			toSplit = getMessageBuilderFactory()
+					.withPayload(countingInputStream)
+					.copyHeaders(message.getHeaders())
+					.build();
+		}
+		Object result = super.splitMessage(toSplit);
+		if (result instanceof Iterator) {
+			return new StatisticsIterator(message, (Iterator<?>) result, start, countingInputStream);
+		}
+		return result;
+	}
+
+	private Meters meters() {
+		MetricsCaptor metricsCaptor = getMetricsCaptor();
+		if (metricsCaptor != null && this.meters == null) {
+			synchronized (this) {
+				if (this.meters == null) {
+					this.meters = new Meters(metricsCaptor);
+				}
+			}
+		}
+		return this.meters;
+	}
+
+	private final class StatisticsIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final Iterator<?> delegate;
+
+		private final long start;
+
+		private final CountingInputStream countingInputStream;
+
+		private long decodeTime;
+
+		private long lines;
+
+		StatisticsIterator(Message<?> message, Iterator<?> delegate, long start,
+				CountingInputStream countingInputStream) {
+
+			this.message = message;
+			this.delegate = delegate;
+			this.start = start;
+			this.countingInputStream = countingInputStream;
+		}
+
+		@Override
+		public boolean hasNext() {
+			long before = System.nanoTime();
+			try {
+				return this.delegate.hasNext();
+			}
+			finally {
+				this.decodeTime += System.nanoTime() - before;
+			}
+		}
+
+		@Override
+		public Object next() {
+			long before = System.nanoTime();
+			Object next = this.delegate.next();
+			this.decodeTime += System.nanoTime() - before;
+			if (next instanceof AbstractIntegrationMessageBuilder
+					&& ((AbstractIntegrationMessageBuilder<?>) next).getPayload() instanceof FileMarker) {
+
+				AbstractIntegrationMessageBuilder<?> builder = (AbstractIntegrationMessageBuilder<?>) next;
+				FileMarker marker = (FileMarker) builder.getPayload();
+				if (marker.getMark() == FileMarker.Mark.END) {
+					marker = statistics(marker);
+				}
+				if (StatisticsFileSplitter.this.markersBinary) {
+					return getMessageBuilderFactory()
+							.withPayload(FileMarkerCodec.encode(marker))
+							.copyHeaders(builder.getHeaders())
+							.setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE);
+				}
+				return getMessageBuilderFactory()
+						.withPayload(StatisticsFileSplitter.this.markersJson ? toJson(marker) : marker)
+						.copyHeaders(builder.getHeaders());
+			}
+			this.lines++;
+			return next;
+		}
+
+		private FileStatisticsMarker statistics(FileMarker marker) {
+			long wallTime = System.nanoTime() - this.start;
+			long bytes = bytesRead();
+			FileStatisticsMarker statistics = new FileStatisticsMarker(marker.getFilePath(), this.lines, bytes,
+					this.decodeTime, wallTime);
+			Meters meters = meters();
+			if (meters != null) {
+				meters.files.increment();
+				meters.decode.record(this.decodeTime, TimeUnit.NANOSECONDS);
+				meters.wall.record(wallTime, TimeUnit.NANOSECONDS);
+			}
+			if (bytes > 0) {
+				StatisticsFileSplitter.this.totalBytes.addAndGet(bytes);
+			}
+			StatisticsFileSplitter.this.totalLines.addAndGet(this.lines);
+			return statistics;
+		}
+
+		private long bytesRead() {
+			if (this.countingInputStream != null) {
+				return this.countingInputStream.count;
+			}
+			Object payload = this.message.getPayload();
+			if (payload instanceof File) {
+				return ((File) payload).length();
+			}
+			else if (payload instanceof String) {
+				return new File((String) payload).length();
+			}
+			return -1;
+		}
+
+		private String toJson(FileMarker marker) {
+			try {
+				return StatisticsFileSplitter.this.jsonObjectMapper.toJson(marker);
+			}
+			catch (Exception e) {
+				throw new MessageHandlingException(this.message, "Failed to convert the marker to JSON", e);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (this.delegate instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) this.delegate).close();
+				}
+				catch (Exception e) {
+					// ignored
+				}
+			}
+		}
+
+	}
+
+	private final class Meters {
+
+		private final CounterFacade files;
+
+		private final TimerFacade decode;
+
+		private final TimerFacade wall;
+
+		Meters(MetricsCaptor metricsCaptor) {
+			String name = getComponentName() != null ? getComponentName() : "fileSplitter";
+			this.files = metricsCaptor.counterBuilder(METER_PREFIX + "files")
+					.tag("name", name)
+					.description("The number of files read")
+					.build();
+			this.decode = metricsCaptor.timerBuilder(METER_PREFIX + "decode")
+					.tag("name", name)
+					.description("The time spent reading and decoding the lines of a file")
+					.build();
+			this.wall = metricsCaptor.timerBuilder(METER_PREFIX + "wall")
+					.tag("name", name)
+					.description("The time from the start to the end of a file, including downstream processing")
+					.build();
+			metricsCaptor.gaugeBuilder(METER_PREFIX + "bytes", StatisticsFileSplitter.this.totalBytes,
+					bytes -> ((AtomicLong) bytes).get())
+					.tag("name", name)
+					.description("The total number of bytes read")
+					.build();
+			metricsCaptor.gaugeBuilder(METER_PREFIX + "lines", StatisticsFileSplitter.this.totalLines,
+					lines -> ((AtomicLong) lines).get())
+					.tag("name", name)
+					.description("The total number of lines emitted")
+					.build();
+		}
+
+	}
+
+	private static final class CountingInputStream extends FilterInputStream {
+
+		private long count;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int read = super.read();
+			if (read >= 0) {
+				this.count++;
+			}
+			return read;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) throws IOException {
+			int read = super.read(bytes, offset, length);
+			if (read > 0) {
+				this.count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			this.count += skipped;
+			return skipped;
+		}
+
+	}
+
+}
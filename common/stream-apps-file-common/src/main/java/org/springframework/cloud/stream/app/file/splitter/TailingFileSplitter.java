@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.metadata.ConcurrentMetadataStore;
+import org.springframework.integration.util.CloseableIterator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.Assert;
+
+/**
+ * A line splitter for append-only files which only emits the lines appended since
+ * the previous read of the same file. The byte offset following the last emitted line
+ * is stored per file in a {@link ConcurrentMetadataStore}, so reading resumes from
+ * there after a restart instead of re-reading the whole file.
+ * <p>
+ * Only complete, {@code \n} terminated lines are emitted; a trailing line still being
+ * written is left for the next read. The lines are committed on the {@code 0x0A} byte,
+ * therefore the charset must encode the line feed as that single byte, e.g.
+ * {@code UTF-8} or {@code ISO-8859-1}; other charsets, e.g. {@code UTF-16}, are rejected. If the file is shorter than the stored offset,
+ * it is considered truncated or rotated and is read from the start. The offset is
+ * stored every {@link #setCommitInterval(int) commitInterval} lines and when the
+ * iteration ends, so at most that many lines are emitted again after a crash.
+ * <p>
+ * A file is only read again when the file list filter of the source accepts it again
+ * once modified, as the filter of {@code FileUtils.directoryScanner()} does; with a
+ * plain {@code AcceptOnceFileListFilter}, only the lines present at the first read
+ * are ever emitted.
+ *
+ * @since 3.0
+ */
+public class TailingFileSplitter extends AbstractFileSplitter {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final ConcurrentMetadataStore metadataStore;
+
+	private String keyPrefix = "file-offset:";
+
+	private int commitInterval = 1000;
+
+	private Charset charset = Charset.defaultCharset();
+
+	/**
+	 * Construct an instance with the provided metadata store for the offsets.
+	 * @param metadataStore the metadata store.
+	 */
+	public TailingFileSplitter(ConcurrentMetadataStore metadataStore) {
+		Assert.notNull(metadataStore, "'metadataStore' must not be null");
+		this.metadataStore = metadataStore;
+	}
+
+	/**
+	 * Set the prefix of the metadata store keys, followed by the absolute file path;
+	 * defaults to {@code file-offset:}.
+	 * @param keyPrefix the key prefix.
+	 */
+	public void setKeyPrefix(String keyPrefix) {
+		Assert.notNull(keyPrefix, "'keyPrefix' must not be null");
+		this.keyPrefix = keyPrefix;
+	}
+
+	/**
+	 * Set the number of emitted lines after which the offset is stored; defaults to 1000.
+	 * @param commitInterval the commit interval.
+	 */
+	public void setCommitInterval(int commitInterval) {
+		Assert.isTrue(commitInterval > 0, "'commitInterval' must be greater than 0");
+		this.commitInterval = commitInterval;
+	}
+
+	/**
+	 * Set the charset to decode lines; defaults to the platform charset.
+	 * @param charset the charset, encoding the line feed as the single byte {@code 0x0A}.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "'charset' must not be null");
+		Assert.isTrue(Arrays.equals("\n".getBytes(charset), new byte[] { '\n' }),
+				() -> "'charset' must encode the line feed as a single 0x0A byte: " + charset);
+		this.charset = charset;
+	}
+
+	@Override
+	protected Object splitFile(Message<?> message, File file) {
+		String key = this.keyPrefix + file.getAbsolutePath();
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			String stored = this.metadataStore.get(key);
+			long offset = stored != null ? Long.parseLong(stored) : 0;
+			if (offset > channel.size()) {
+				offset = 0;
+			}
+			channel.position(offset);
+			return new TailIterator(message, channel, key, offset);
+		}
+		catch (IOException e) {
+			throw new MessageHandlingException(message, "failed to read file [" + file + "]", e);
+		}
+	}
+
+	private final class TailIterator implements CloseableIterator<Object> {
+
+		private final Message<?> message;
+
+		private final FileChannel channel;
+
+		private final String key;
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+		private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+
+		private long readPosition;
+
+		private long emittedPosition;
+
+		private long committedPosition;
+
+		private int uncommittedLines;
+
+		private String line;
+
+		private long lineOffset;
+
+		private boolean closed;
+
+		TailIterator(Message<?> message, FileChannel channel, String key, long offset) {
+			this.message = message;
+			this.channel = channel;
+			this.key = key;
+			this.readPosition = offset;
+			this.emittedPosition = offset;
+			this.committedPosition = offset;
+			this.buffer.flip();
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (this.line == null && !this.closed) {
+				// the lines returned by next() so far have been sent by the time the next one is requested
+				this.emittedPosition = this.readPosition;
+				if (this.uncommittedLines >= TailingFileSplitter.this.commitInterval) {
+					commit();
+				}
+				try {
+					this.lineOffset = this.readPosition;
+					this.line = readLine();
+				}
+				catch (IOException e) {
+					close();
+					throw new MessageHandlingException(this.message, "IOException while iterating", e);
+				}
+				if (this.line == null) {
+					close();
+				}
+			}
+			return this.line != null;
+		}
+
+		private String readLine() throws IOException {
+			this.lineBuffer.reset();
+			while (true) {
+				if (!this.buffer.hasRemaining()) {
+					this.buffer.clear();
+					int read = this.channel.read(this.buffer);
+					this.buffer.flip();
+					if (read <= 0) {
+						return null;
+					}
+				}
+				int start = this.buffer.position();
+				int limit = this.buffer.limit();
+				byte[] array = this.buffer.array();
+				for (int i = start; i < limit; i++) {
+					if (array[i] == '\n') {
+						this.lineBuffer.write(array, start, i - start);
+						this.buffer.position(i + 1);
+						this.readPosition += this.lineBuffer.size() + 1;
+						return decode();
+					}
+				}
+				this.lineBuffer.write(array, start, limit - start);
+				this.buffer.position(limit);
+			}
+		}
+
+		private String decode() {
+			String decoded = new String(this.lineBuffer.toByteArray(), TailingFileSplitter.this.charset);
+			return decoded.endsWith("\r") ? decoded.substring(0, decoded.length() - 1) : decoded;
+		}
+
+		@Override
+		public Object next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException(this.message.getPayload() + " has been consumed");
+			}
+			String payload = this.line;
+			this.line = null;
+			this.uncommittedLines++;
+			return getMessageBuilderFactory()
+					.withPayload(payload)
+					.setHeader(FileReadingHeaders.OFFSET, this.lineOffset);
+		}
+
+		private void commit() {
+			if (this.emittedPosition != this.committedPosition) {
+				TailingFileSplitter.this.metadataStore.put(this.key, Long.toString(this.emittedPosition));
+				this.committedPosition = this.emittedPosition;
+			}
+			this.uncommittedLines = 0;
+		}
+
+		@Override
+		public void close() {
+			if (!this.closed) {
+				this.closed = true;
+				commit();
+				try {
+					this.channel.close();
+				}
+				catch (IOException e) {
+					// ignored
+				}
+				closeResource(this.message);
+			}
+		}
+
+	}
+
+}
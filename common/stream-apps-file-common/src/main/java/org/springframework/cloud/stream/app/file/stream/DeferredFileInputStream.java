@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.stream;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.util.Assert;
+
+/**
+ * An {@link InputStream} over a file which is only opened when the first byte is
+ * requested, and closed as soon as the end of the file is reached, so a consumer
+ * reading it to the end does not need to close it; closing it before is still
+ * supported, and a stream closed before being read never opens the file.
+ *
+ * @since 3.0
+ */
+public class DeferredFileInputStream extends InputStream {
+
+	private final File file;
+
+	private InputStream delegate;
+
+	private boolean closed;
+
+	/**
+	 * Construct an instance over the provided file.
+	 * @param file the file.
+	 */
+	public DeferredFileInputStream(File file) {
+		Assert.notNull(file, "'file' must not be null");
+		this.file = file;
+	}
+
+	/**
+	 * Return the file.
+	 * @return the file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Return whether the file has been opened.
+	 * @return true if opened, even if closed since.
+	 */
+	public boolean isOpened() {
+		return this.delegate != null;
+	}
+
+	@Override
+	public int read() throws IOException {
+		InputStream in = delegate();
+		if (in == null) {
+			return -1;
+		}
+		int read = in.read();
+		if (read < 0) {
+			close();
+		}
+		return read;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0) {
+			return 0;
+		}
+		InputStream in = delegate();
+		if (in == null) {
+			return -1;
+		}
+		int read = in.read(bytes, offset, length);
+		if (read < 0) {
+			close();
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		InputStream in = delegate();
+		return in != null ? in.skip(n) : 0;
+	}
+
+	@Override
+	public int available() throws IOException {
+		InputStream in = delegate();
+		return in != null ? in.available() : 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (!this.closed) {
+			this.closed = true;
+			if (this.delegate != null) {
+				this.delegate.close();
+			}
+		}
+	}
+
+	private synchronized InputStream delegate() throws IOException {
+		if (this.closed) {
+			return null;
+		}
+		if (this.delegate == null) {
+			this.delegate = new FileInputStream(this.file);
+		}
+		return this.delegate;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + this.file + "]";
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.stream;
+
+import java.io.Closeable;
+import java.io.File;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.transformer.AbstractTransformer;
+import org.springframework.messaging.Message;
+
+/**
+ * Replaces a {@link File} or file path payload with a {@link DeferredFileInputStream},
+ * which is also set as the {@link IntegrationMessageHeaderAccessor#CLOSEABLE_RESOURCE
+ * closeable resource} of the message, closing the existing one as well, if any; nothing
+ * is read from the file until the consumer pulls the bytes. Any other payload, e.g. an {@link java.io.InputStream} already, is
+ * returned as is.
+ * <p>
+ * The stream can only be consumed in the same process, e.g. by a function composed
+ * with the source; it cannot go through a binder.
+ *
+ * @since 3.0
+ */
+public class DeferredStreamTransformer extends AbstractTransformer {
+
+	@Override
+	protected Object doTransform(Message<?> message) {
+		Object payload = message.getPayload();
+		File file;
+		if (payload instanceof File) {
+			file = (File) payload;
+		}
+		else if (payload instanceof String) {
+			file = new File((String) payload);
+		}
+		else {
+			return message;
+		}
+		DeferredFileInputStream inputStream = new DeferredFileInputStream(file);
+		Closeable existing = StaticMessageHeaderAccessor.getCloseableResource(message);
+		Closeable closeable = existing == null
+				? inputStream
+				: () -> {
+					try {
+						inputStream.close();
+					}
+					finally {
+						existing.close();
+					}
+				};
+		return getMessageBuilderFactory()
+				.withPayload(inputStream)
+				.copyHeaders(message.getHeaders())
+				.setHeader(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE, closeable)
+				.setHeaderIfAbsent(FileHeaders.ORIGINAL_FILE, file)
+				.setHeaderIfAbsent(FileHeaders.FILENAME, file.getName())
+				.build();
+	}
+
+}
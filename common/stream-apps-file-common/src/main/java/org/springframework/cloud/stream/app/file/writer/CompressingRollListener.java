@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.writer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.Lifecycle;
+import org.springframework.cloud.stream.app.file.compression.CompressionFormat;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
+/**
+ * A roll listener for the {@link RollingFileWritingMessageHandler} compressing each
+ * rolled file on a background pool, so the compression stays off the write path and
+ * several files are compressed in parallel. The file is read back right after being
+ * written, usually from the page cache rather than the device.
+ * <p>
+ * The compressed file gets the format extension appended to the rolled file name; it
+ * is written under a temporary name and renamed once complete, then the rolled file is
+ * deleted, so either of them always holds the whole data. Unless
+ * {@link #setForce(boolean) force} is false, the compressed file and then the directory
+ * are forced to the device before the rolled file is deleted, so a crash cannot lose a
+ * file that was already durable. The compressed files are passed to the listeners, on
+ * the compressing thread.
+ * <p>
+ * The pool is started on construction; stopping the listener waits for the pending
+ * compressions. A {@link RollingFileWritingMessageHandler} starts and stops its
+ * {@link Lifecycle} roll listeners with itself, after rolling the last file on stop.
+ * While stopped, the files are compressed on the rolling thread.
+ *
+ * @since 3.0
+ */
+public class CompressingRollListener implements Consumer<File>, Lifecycle, DisposableBean {
+
+	private static final Log logger = LogFactory.getLog(CompressingRollListener.class);
+
+	private static final String IN_PROGRESS_SUFFIX = ".compressing";
+
+	private final CompressionFormat format;
+
+	private final int threads;
+
+	private volatile boolean force = true;
+
+	private volatile ExecutorService executor;
+
+	private final List<Consumer<File>> listeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Construct an instance compressing to the provided format with the provided number
+	 * of threads.
+	 * @param format the compression format.
+	 * @param threads the number of files compressed in parallel.
+	 */
+	public CompressingRollListener(CompressionFormat format, int threads) {
+		Assert.notNull(format, "'format' must not be null");
+		Assert.isTrue(threads > 0, "'threads' must be greater than 0");
+		this.format = format;
+		this.threads = threads;
+		start();
+	}
+
+	/**
+	 * Set to false not to force the compressed files to the device, e.g. with the
+	 * {@link FsyncPolicy#never} policy; defaults to true.
+	 * @param force false not to force the compressed files.
+	 */
+	public void setForce(boolean force) {
+		this.force = force;
+	}
+
+	/**
+	 * Add a listener called with each compressed file.
+	 * @param listener the listener.
+	 */
+	public void addListener(Consumer<File> listener) {
+		Assert.notNull(listener, "'listener' must not be null");
+		this.listeners.add(listener);
+	}
+
+	@Override
+	public synchronized void start() {
+		if (this.executor == null) {
+			CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("file-writer-compression-");
+			threadFactory.setDaemon(true);
+			this.executor = Executors.newFixedThreadPool(this.threads, threadFactory);
+		}
+	}
+
+	/**
+	 * Stop the pool, waiting for the pending compressions to complete.
+	 */
+	@Override
+	public synchronized void stop() {
+		ExecutorService executor = this.executor;
+		if (executor != null) {
+			this.executor = null;
+			executor.shutdown();
+			try {
+				executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.executor != null;
+	}
+
+	@Override
+	public void accept(File file) {
+		ExecutorService executor = this.executor;
+		if (executor != null) {
+			try {
+				executor.execute(() -> compress(file));
+				return;
+			}
+			catch (RejectedExecutionException e) {
+				// stopped in the meantime
+			}
+		}
+		compress(file);
+	}
+
+	private void compress(File file) {
+		File compressed = new File(file.getPath() + this.format.getExtension());
+		File inProgress = new File(compressed.getPath() + IN_PROGRESS_SUFFIX);
+		try {
+			boolean force = this.force;
+			OutputStream fileOut = new FileOutputStream(inProgress) {
+
+				@Override
+				public void close() throws IOException {
+					try {
+						if (force) {
+							getFD().sync();
+						}
+					}
+					finally {
+						super.close();
+					}
+				}
+
+			};
+			OutputStream compressingOut;
+			try {
+				compressingOut = this.format.compress(fileOut);
+			}
+			catch (IOException | RuntimeException e) {
+				fileOut.close();
+				throw e;
+			}
+			try (InputStream in = Files.newInputStream(file.toPath()); OutputStream out = compressingOut) {
+				StreamUtils.copy(in, out);
+			}
+			Files.move(inProgress.toPath(), compressed.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			if (force) {
+				forceDirectory(compressed.getAbsoluteFile().getParentFile());
+			}
+			Files.delete(file.toPath());
+		}
+		catch (IOException | RuntimeException e) {
+			logger.error("Failed to compress " + file + "; leaving it uncompressed", e);
+			inProgress.delete();
+			return;
+		}
+		for (Consumer<File> listener : this.listeners) {
+			listener.accept(compressed);
+		}
+	}
+
+	private static void forceDirectory(File directory) {
+		try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+		catch (IOException e) {
+			// not supported by the platform, e.g. Windows
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to force the directory " + directory, e);
+			}
+		}
+	}
+
+	/**
+	 * Wait for the pending compressions to complete.
+	 */
+	@Override
+	public void destroy() {
+		stop();
+	}
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.writer;
+
+/**
+ * Defines when the data written by the {@link RollingFileWritingMessageHandler} is
+ * forced to the storage device.
+ *
+ * @since 3.0
+ */
+public enum FsyncPolicy {
+
+	/**
+	 * Never; the operating system writes the data back at its own pace.
+	 */
+	never,
+
+	/**
+	 * When a file is rolled, before it gets its final name.
+	 */
+	roll,
+
+	/**
+	 * Periodically, committing all the data written since the previous time at once,
+	 * as well as when a file is rolled.
+	 */
+	groupCommit
+
+}
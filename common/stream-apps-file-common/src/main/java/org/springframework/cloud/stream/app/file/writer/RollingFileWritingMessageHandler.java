@@ -0,0 +1,469 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.writer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.springframework.context.Lifecycle;
+import org.springframework.integration.handler.AbstractMessageHandler;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * A sink appending the {@code byte[]} or {@link String} payloads to files in a directory
+ * through a buffered {@link FileChannel}, rolling to a new file by size, record count
+ * and/or age. A file is written with the {@code .writing} suffix and renamed once
+ * rolled, so it only appears under its final name when complete; the roll listeners
+ * are then called with it, on the thread which rolled it.
+ * <p>
+ * With the {@link FsyncPolicy#groupCommit} policy, the buffer is written and forced to
+ * the device every {@link #setGroupCommitInterval(Duration) groupCommitInterval} by a
+ * background thread, amortizing one {@code fsync} over all the records written in the
+ * meantime, which are at most that long at risk on a crash; the writes themselves do
+ * not wait for it. The periodic tasks only run while the handler is started; stopping
+ * it rolls the current file, then stops the {@link Lifecycle} roll listeners.
+ *
+ * @since 3.0
+ */
+public class RollingFileWritingMessageHandler extends AbstractMessageHandler implements Lifecycle {
+
+	private static final String IN_PROGRESS_SUFFIX = ".writing";
+
+	private final File directory;
+
+	private final Object lock = new Object();
+
+	private final List<Consumer<File>> rollListeners = new CopyOnWriteArrayList<>();
+
+	private String fileNamePrefix = "output";
+
+	private String fileNameSuffix = "";
+
+	private long rollSize = 128 * 1024 * 1024;
+
+	private long rollRecords;
+
+	private Duration rollInterval = Duration.ZERO;
+
+	private FsyncPolicy fsyncPolicy = FsyncPolicy.roll;
+
+	private Duration groupCommitInterval = Duration.ofMillis(10);
+
+	private int bufferSize = 64 * 1024;
+
+	private byte[] delimiter = { '\n' };
+
+	private Charset charset = StandardCharsets.UTF_8;
+
+	private Segment segment;
+
+	private long fileCounter;
+
+	private volatile ScheduledExecutorService scheduler;
+
+	/**
+	 * Construct an instance writing to the provided directory, created if it does not exist.
+	 * @param directory the directory.
+	 */
+	public RollingFileWritingMessageHandler(File directory) {
+		Assert.notNull(directory, "'directory' must not be null");
+		this.directory = directory;
+	}
+
+	/**
+	 * Set the prefix of the file names, followed by a timestamp and a counter;
+	 * defaults to {@code output}.
+	 * @param fileNamePrefix the file name prefix.
+	 */
+	public void setFileNamePrefix(String fileNamePrefix) {
+		Assert.hasText(fileNamePrefix, "'fileNamePrefix' must not be empty");
+		this.fileNamePrefix = fileNamePrefix;
+	}
+
+	/**
+	 * Set the suffix of the file names, e.g. {@code .txt}; defaults to none.
+	 * @param fileNameSuffix the file name suffix.
+	 */
+	public void setFileNameSuffix(String fileNameSuffix) {
+		Assert.notNull(fileNameSuffix, "'fileNameSuffix' must not be null");
+		this.fileNameSuffix = fileNameSuffix;
+	}
+
+	/**
+	 * Set the size in bytes from which a file is rolled; 0 for no limit;
+	 * defaults to 128MB.
+	 * @param rollSize the roll size.
+	 */
+	public void setRollSize(long rollSize) {
+		Assert.isTrue(rollSize >= 0, "'rollSize' must not be negative");
+		this.rollSize = rollSize;
+	}
+
+	/**
+	 * Set the number of records from which a file is rolled; defaults to 0, no limit.
+	 * @param rollRecords the roll record count.
+	 */
+	public void setRollRecords(long rollRecords) {
+		Assert.isTrue(rollRecords >= 0, "'rollRecords' must not be negative");
+		this.rollRecords = rollRecords;
+	}
+
+	/**
+	 * Set the age from which a file is rolled; defaults to 0, no limit.
+	 * @param rollInterval the roll interval.
+	 */
+	public void setRollInterval(Duration rollInterval) {
+		Assert.isTrue(rollInterval != null && !rollInterval.isNegative(),
+				"'rollInterval' must not be null or negative");
+		this.rollInterval = rollInterval;
+	}
+
+	/**
+	 * Set the fsync policy; defaults to {@link FsyncPolicy#roll}.
+	 * @param fsyncPolicy the fsync policy.
+	 */
+	public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+		Assert.notNull(fsyncPolicy, "'fsyncPolicy' must not be null");
+		this.fsyncPolicy = fsyncPolicy;
+	}
+
+	/**
+	 * Set the interval between two group commits; defaults to 10 milliseconds.
+	 * @param groupCommitInterval the group commit interval.
+	 */
+	public void setGroupCommitInterval(Duration groupCommitInterval) {
+		Assert.isTrue(groupCommitInterval != null && !groupCommitInterval.isZero()
+				&& !groupCommitInterval.isNegative(), "'groupCommitInterval' must be positive");
+		this.groupCommitInterval = groupCommitInterval;
+	}
+
+	/**
+	 * Set the size of the write buffer; defaults to 64KB.
+	 * @param bufferSize the buffer size.
+	 */
+	public void setBufferSize(int bufferSize) {
+		Assert.isTrue(bufferSize > 0, "'bufferSize' must be greater than 0");
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * Set the delimiter written after each record; defaults to a new line.
+	 * @param delimiter the delimiter, empty for none.
+	 */
+	public void setDelimiter(byte[] delimiter) {
+		Assert.notNull(delimiter, "'delimiter' must not be null");
+		this.delimiter = delimiter.clone();
+	}
+
+	/**
+	 * Set the charset to encode {@link String} payloads; defaults to UTF-8.
+	 * @param charset the charset.
+	 */
+	public void setCharset(Charset charset) {
+		Assert.notNull(charset, "'charset' must not be null");
+		this.charset = charset;
+	}
+
+	/**
+	 * Add a listener called with each rolled file, under its final name. A
+	 * {@link Lifecycle} listener is started and stopped with this handler, after the
+	 * last file is rolled on stop.
+	 * @param rollListener the roll listener.
+	 */
+	public void addRollListener(Consumer<File> rollListener) {
+		Assert.notNull(rollListener, "'rollListener' must not be null");
+		this.rollListeners.add(rollListener);
+	}
+
+	@Override
+	public String getComponentType() {
+		return "file:rolling-outbound-channel-adapter";
+	}
+
+	@Override
+	protected void handleMessageInternal(Message<?> message) {
+		Object payload = message.getPayload();
+		byte[] bytes;
+		if (payload instanceof byte[]) {
+			bytes = (byte[]) payload;
+		}
+		else if (payload instanceof String) {
+			bytes = ((String) payload).getBytes(this.charset);
+		}
+		else {
+			throw new MessageHandlingException(message, "Unsupported payload type: " + payload.getClass()
+					+ "; only byte[] and String are supported");
+		}
+		synchronized (this.lock) {
+			try {
+				if (this.segment == null) {
+					this.segment = openSegment();
+				}
+				this.segment.write(bytes);
+				if (this.delimiter.length > 0) {
+					this.segment.write(this.delimiter);
+				}
+				this.segment.records++;
+				if ((this.rollSize > 0 && this.segment.size >= this.rollSize)
+						|| (this.rollRecords > 0 && this.segment.records >= this.rollRecords)) {
+					roll();
+				}
+			}
+			catch (IOException e) {
+				throw new MessageHandlingException(message, "Failed to write to " + this.segment, e);
+			}
+		}
+	}
+
+	/**
+	 * Roll the current file, if any.
+	 * @throws IOException if the file cannot be closed or renamed.
+	 */
+	public void roll() throws IOException {
+		File rolled;
+		synchronized (this.lock) {
+			Segment current = this.segment;
+			if (current == null) {
+				return;
+			}
+			this.segment = null;
+			current.close(this.fsyncPolicy != FsyncPolicy.never);
+			Files.move(current.inProgressFile.toPath(), current.file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			rolled = current.file;
+		}
+		for (Consumer<File> listener : this.rollListeners) {
+			listener.accept(rolled);
+		}
+	}
+
+	private Segment openSegment() throws IOException {
+		Files.createDirectories(this.directory.toPath());
+		String name = this.fileNamePrefix + '-' + System.currentTimeMillis() + '-' + this.fileCounter++
+				+ this.fileNameSuffix;
+		return new Segment(new File(this.directory, name), this.bufferSize);
+	}
+
+	@Override
+	public void start() {
+		synchronized (this.lock) {
+			if (this.scheduler == null) {
+				CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("file-writer-");
+				threadFactory.setDaemon(true);
+				ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+				if (this.fsyncPolicy == FsyncPolicy.groupCommit) {
+					long interval = this.groupCommitInterval.toNanos();
+					executor.scheduleWithFixedDelay(this::commit, interval, interval, TimeUnit.NANOSECONDS);
+				}
+				if (!this.rollInterval.isZero()) {
+					long interval = Math.max(this.rollInterval.toNanos() / 10, TimeUnit.MILLISECONDS.toNanos(10));
+					executor.scheduleWithFixedDelay(this::rollIfExpired, interval, interval, TimeUnit.NANOSECONDS);
+				}
+				this.scheduler = executor;
+			}
+		}
+		for (Consumer<File> listener : this.rollListeners) {
+			if (listener instanceof Lifecycle) {
+				((Lifecycle) listener).start();
+			}
+		}
+	}
+
+	@Override
+	public void stop() {
+		ScheduledExecutorService executor;
+		synchronized (this.lock) {
+			executor = this.scheduler;
+			this.scheduler = null;
+		}
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			roll();
+		}
+		catch (IOException e) {
+			logger.error("Failed to roll the current file on stop", e);
+		}
+		for (Consumer<File> listener : this.rollListeners) {
+			if (listener instanceof Lifecycle) {
+				((Lifecycle) listener).stop();
+			}
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return this.scheduler != null;
+	}
+
+	private void commit() {
+		Segment current;
+		try {
+			synchronized (this.lock) {
+				current = this.segment;
+				if (current == null || !current.flushUnforced()) {
+					return;
+				}
+			}
+			// outside of the lock, so the writes go on during the fsync
+			current.channel.force(false);
+		}
+		catch (ClosedChannelException e) {
+			// rolled in the meantime, which forces it
+		}
+		catch (IOException e) {
+			logger.error("Failed to commit " + this.segment, e);
+		}
+	}
+
+	private void rollIfExpired() {
+		synchronized (this.lock) {
+			if (this.segment == null || System.nanoTime() - this.segment.openedAt < this.rollInterval.toNanos()) {
+				return;
+			}
+		}
+		try {
+			roll();
+		}
+		catch (IOException e) {
+			logger.error("Failed to roll " + this.segment, e);
+		}
+	}
+
+	private static final class Segment {
+
+		private final File file;
+
+		private final File inProgressFile;
+
+		private final FileChannel channel;
+
+		private final ByteBuffer buffer;
+
+		private final long openedAt = System.nanoTime();
+
+		private long size;
+
+		private long records;
+
+		private boolean unforced;
+
+		Segment(File file, int bufferSize) throws IOException {
+			this.file = file;
+			this.inProgressFile = new File(file.getPath() + IN_PROGRESS_SUFFIX);
+			this.channel = FileChannel.open(this.inProgressFile.toPath(), StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE);
+			this.buffer = ByteBuffer.allocateDirect(bufferSize);
+		}
+
+		void write(byte[] bytes) throws IOException {
+			if (bytes.length > this.buffer.remaining()) {
+				flush();
+			}
+			if (bytes.length >= this.buffer.capacity()) {
+				ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+				while (wrapped.hasRemaining()) {
+					this.channel.write(wrapped);
+				}
+				this.unforced = true;
+			}
+			else {
+				this.buffer.put(bytes);
+			}
+			this.size += bytes.length;
+		}
+
+		/**
+		 * Write the buffer to the channel.
+		 * @return true if anything has been written.
+		 * @throws IOException if the channel cannot be written.
+		 */
+		boolean flush() throws IOException {
+			if (this.buffer.position() == 0) {
+				return false;
+			}
+			this.buffer.flip();
+			try {
+				while (this.buffer.hasRemaining()) {
+					this.channel.write(this.buffer);
+				}
+			}
+			finally {
+				this.buffer.clear();
+				this.unforced = true;
+			}
+			return true;
+		}
+
+		/**
+		 * Write the buffer to the channel, to be forced by the caller if anything has been
+		 * written since the previous call, either now or by a {@link #write(byte[])}
+		 * overflowing the buffer or bypassing it.
+		 * @return true if the channel must be forced.
+		 * @throws IOException if the channel cannot be written.
+		 */
+		boolean flushUnforced() throws IOException {
+			flush();
+			boolean unforced = this.unforced;
+			this.unforced = false;
+			return unforced;
+		}
+
+		void close(boolean force) throws IOException {
+			try {
+				flush();
+				if (force) {
+					this.channel.force(true);
+				}
+			}
+			finally {
+				this.channel.close();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return this.inProgressFile.toString();
+		}
+
+	}
+
+}
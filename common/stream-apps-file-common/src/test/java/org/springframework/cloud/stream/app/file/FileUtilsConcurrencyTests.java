@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.config.EnableIntegration;
+import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.IntegrationFlows;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * @since 3.0
+ */
+public class FileUtilsConcurrencyTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testLinesKeepTheirOrderPerFile() throws Exception {
+		int files = 4;
+		int lines = 2000;
+		try (AnnotationConfigApplicationContext context =
+				new AnnotationConfigApplicationContext(ConcurrentFlowConfiguration.class)) {
+
+			MessageChannel input = context.getBean("input", MessageChannel.class);
+			QueueChannel output = context.getBean("output", QueueChannel.class);
+			for (int i = 0; i < files; i++) {
+				File file = this.tempFolder.newFile("file" + i + ".txt");
+				StringBuilder content = new StringBuilder();
+				for (int line = 0; line < lines; line++) {
+					content.append(line).append('\n');
+				}
+				Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+				input.send(MessageBuilder.withPayload(file).build());
+			}
+
+			Map<Object, List<Integer>> linesPerFile = new HashMap<>();
+			Set<String> threads = new HashSet<>();
+			for (int i = 0; i < files * lines; i++) {
+				Message<?> message = output.receive(10_000);
+				assertThat(message).isNotNull();
+				linesPerFile.computeIfAbsent(message.getHeaders().get(FileReadingHeaders.PARTITION_KEY),
+						key -> new ArrayList<>()).add(Integer.parseInt((String) message.getPayload()));
+				threads.add((String) message.getHeaders().get("thread"));
+			}
+			assertThat(linesPerFile).hasSize(files);
+			for (List<Integer> fileLines : linesPerFile.values()) {
+				assertThat(fileLines).hasSize(lines).isSorted();
+			}
+			assertThat(threads).allMatch(thread -> thread.startsWith("file-processing-"));
+		}
+	}
+
+	@Test
+	public void testFilesInFlightCompleteOnShutdown() throws Exception {
+		int files = 4;
+		int lines = 20000;
+		QueueChannel output;
+		try (AnnotationConfigApplicationContext context =
+				new AnnotationConfigApplicationContext(ConcurrentFlowConfiguration.class)) {
+
+			MessageChannel input = context.getBean("input", MessageChannel.class);
+			output = context.getBean("output", QueueChannel.class);
+			StringBuilder content = new StringBuilder();
+			for (int line = 0; line < lines; line++) {
+				content.append(line).append('\n');
+			}
+			for (int i = 0; i < files; i++) {
+				File file = this.tempFolder.newFile("file" + i + ".txt");
+				Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+				input.send(MessageBuilder.withPayload(file).build());
+			}
+		}
+		// the context close waits for the files being processed
+		assertThat(output.getQueueSize()).isEqualTo(files * lines);
+	}
+
+	@Configuration
+	@EnableIntegration
+	static class ConcurrentFlowConfiguration {
+
+		@Bean
+		public QueueChannel output() {
+			return new QueueChannel();
+		}
+
+		@Bean
+		public IntegrationFlow flow() {
+			FileConsumerProperties properties = new FileConsumerProperties();
+			properties.setMode(FileReadingMode.lines);
+			properties.setConcurrency(4);
+			return FileUtils.enhanceFlowForReadingMode(IntegrationFlows.from("input"), properties)
+					.enrichHeaders(headers -> headers.headerFunction("thread",
+							message -> Thread.currentThread().getName()))
+					.channel(output())
+					.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.cloud.stream.app.file.scanner.PickupOrder;
+import org.springframework.integration.file.FileReadingMessageSource;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class FileUtilsPickupOrderTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testFilesReceivedInPickupOrder() throws Exception {
+		File directory = this.tempFolder.newFolder("in");
+		// the smaller the file, the later its name
+		for (String name : new String[] { "a", "b", "c", "d", "e" }) {
+			Files.write(new File(directory, name).toPath(), new byte['f' - name.charAt(0)]);
+		}
+		FileConsumerProperties properties = new FileConsumerProperties();
+		properties.setPickupOrder(PickupOrder.smallest);
+		properties.setMaxFilesPerPoll(3);
+
+		FileReadingMessageSource source = new FileReadingMessageSource(FileUtils.receptionOrder(properties, null));
+		source.setDirectory(directory);
+		source.setScanner(FileUtils.directoryScanner(directory, properties, new SimpleMetadataStore()));
+		source.setBeanFactory(new DefaultListableBeanFactory());
+		source.afterPropertiesSet();
+		source.start();
+		try {
+			List<String> received = new ArrayList<>();
+			Message<File> message;
+			while ((message = source.receive()) != null) {
+				received.add(message.getPayload().getName());
+			}
+			assertThat(received).containsExactly("e", "d", "c", "b", "a");
+		}
+		finally {
+			source.stop();
+		}
+	}
+
+}
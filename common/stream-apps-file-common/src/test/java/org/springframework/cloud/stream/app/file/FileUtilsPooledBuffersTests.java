@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.buffer.BufferReleasingChannelInterceptor;
+import org.springframework.cloud.stream.app.file.buffer.ByteBufferMessageConverter;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.config.EnableIntegration;
+import org.springframework.integration.dsl.IntegrationFlow;
+import org.springframework.integration.dsl.IntegrationFlows;
+import org.springframework.integration.dsl.MessageChannels;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+/**
+ * @since 3.0
+ */
+public class FileUtilsPooledBuffersTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testBytesIntactThroughAsynchronousFlow() throws Exception {
+		int files = 200;
+		try (AnnotationConfigApplicationContext context =
+				new AnnotationConfigApplicationContext(PooledFlowConfiguration.class)) {
+
+			MessageChannel input = context.getBean("input", MessageChannel.class);
+			QueueChannel sent = context.getBean("sent", QueueChannel.class);
+			Map<String, String> contents = new HashMap<>();
+			for (int i = 0; i < files; i++) {
+				File file = this.tempFolder.newFile("file" + i + ".txt");
+				StringBuilder content = new StringBuilder();
+				for (int j = 0; j <= i; j++) {
+					content.append("file").append(i).append(',');
+				}
+				contents.put(file.getName(), content.toString());
+				Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+				input.send(MessageBuilder.withPayload(file).build());
+			}
+			for (int i = 0; i < files; i++) {
+				Message<?> message = sent.receive(10_000);
+				assertThat(message).isNotNull();
+				assertThat(message.getPayload()).isInstanceOf(byte[].class);
+				assertThat(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8))
+						.isEqualTo(contents.remove(message.getHeaders().get(FileHeaders.FILENAME, String.class)));
+			}
+			assertThat(contents).isEmpty();
+		}
+	}
+
+	@Configuration
+	@EnableIntegration
+	static class PooledFlowConfiguration {
+
+		@Bean
+		public QueueChannel sent() {
+			return new QueueChannel();
+		}
+
+		/**
+		 * Stands for the channel bound to a binder, converting the payload as it is sent.
+		 */
+		@Bean
+		public DirectChannel output() {
+			DirectChannel output = new DirectChannel();
+			ByteBufferMessageConverter converter = new ByteBufferMessageConverter();
+			output.addInterceptor(new ChannelInterceptor() {
+
+				@Override
+				public Message<?> preSend(Message<?> message, MessageChannel channel) {
+					return converter.toMessage(message.getPayload(), message.getHeaders());
+				}
+
+			});
+			output.addInterceptor(new BufferReleasingChannelInterceptor());
+			output.subscribe(sent()::send);
+			return output;
+		}
+
+		@Bean(destroyMethod = "shutdown")
+		public ExecutorService executor() {
+			return Executors.newFixedThreadPool(4);
+		}
+
+		@Bean
+		public IntegrationFlow flow() {
+			FileConsumerProperties properties = new FileConsumerProperties();
+			properties.setPooledBuffers(true);
+			properties.setPooledBufferMaxTotal(8 * 1024);
+			return FileUtils.enhanceFlowForReadingMode(IntegrationFlows.from("input"), properties)
+					.channel(MessageChannels.executor(executor()))
+					.channel(output())
+					.get();
+		}
+
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import reactor.core.publisher.Flux;
+
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class FileUtilsReactiveTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testLines() throws Exception {
+		File file = this.tempFolder.newFile("lines.txt");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("one\ntwo\r\nthree".getBytes());
+		}
+		FileConsumerProperties properties = new FileConsumerProperties();
+		properties.setMode(FileReadingMode.lines);
+		List<Message<?>> messages = read(file, properties);
+		assertThat(messages.stream().<Object>map(Message::getPayload).collect(Collectors.toList()))
+				.containsExactly("one", "two", "three");
+		assertThat(messages.get(2).getHeaders().get(FileHeaders.ORIGINAL_FILE)).isEqualTo(file);
+	}
+
+	@Test
+	public void testChunks() throws Exception {
+		File file = this.tempFolder.newFile("chunks.bin");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[10]);
+		}
+		FileConsumerProperties properties = new FileConsumerProperties();
+		properties.setMode(FileReadingMode.chunks);
+		properties.setChunkSize(4);
+		List<Message<?>> messages = read(file, properties);
+		assertThat(messages).hasSize(3);
+		assertThat((byte[]) messages.get(2).getPayload()).hasSize(2);
+		assertThat(messages.get(2).getHeaders().get(FileReadingHeaders.OFFSET)).isEqualTo(8L);
+	}
+
+	private static List<Message<?>> read(File file, FileConsumerProperties properties) {
+		return FileUtils.enhanceFluxForReadingMode(Flux.just(MessageBuilder.withPayload(file).build()), properties)
+				.collectList()
+				.block();
+	}
+
+}
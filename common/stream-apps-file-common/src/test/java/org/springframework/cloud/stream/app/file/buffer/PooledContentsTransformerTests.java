@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.buffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class PooledContentsTransformerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testBufferReleasedAfterSendAndReused() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		Files.write(file.toPath(), "pooled".getBytes(StandardCharsets.UTF_8));
+		DirectBufferPool pool = new DirectBufferPool(64 * 1024, 1024 * 1024);
+		PooledContentsTransformer transformer = new PooledContentsTransformer(pool);
+
+		DirectChannel channel = new DirectChannel();
+		channel.addInterceptor(new BufferReleasingChannelInterceptor());
+		AtomicReference<String> received = new AtomicReference<>();
+		channel.subscribe(message -> {
+			ByteBuffer payload = (ByteBuffer) message.getPayload();
+			assertThat(payload.isDirect()).isTrue();
+			assertThat(payload.isReadOnly()).isTrue();
+			byte[] bytes = new byte[payload.remaining()];
+			payload.get(bytes);
+			received.set(new String(bytes, StandardCharsets.UTF_8));
+		});
+
+		Message<?> message = transformer.transform(MessageBuilder.withPayload(file).build());
+		PooledBuffer pooledBuffer = (PooledBuffer) StaticMessageHeaderAccessor.getCloseableResource(message);
+		assertThat(pool.getPooledBytes()).isEqualTo(0);
+		channel.send(message);
+		assertThat(received.get()).isEqualTo("pooled");
+		assertThat(pooledBuffer.referenceCount()).isEqualTo(0);
+		assertThat(pool.getPooledBytes()).isEqualTo(4096);
+		assertThatIllegalStateException().isThrownBy(pooledBuffer::release);
+
+		transformer.transform(MessageBuilder.withPayload(file).build());
+		assertThat(pool.getPooledBytes()).isEqualTo(0);
+	}
+
+	@Test
+	public void testRetainedBufferNotReleased() throws Exception {
+		DirectBufferPool pool = new DirectBufferPool(8192, 8192);
+		ByteBuffer buffer = pool.acquire(5000);
+		assertThat(buffer.capacity()).isEqualTo(8192);
+		PooledBuffer pooledBuffer = new PooledBuffer(pool, buffer).retain();
+		assertThat(pooledBuffer.release()).isFalse();
+		assertThat(pool.getPooledBytes()).isEqualTo(0);
+		assertThat(pooledBuffer.release()).isTrue();
+		assertThat(pool.getPooledBytes()).isEqualTo(8192);
+		assertThat(pool.acquire(6000)).isSameAs(buffer);
+	}
+
+	@Test
+	public void testLargeFileNotPooled() throws Exception {
+		File file = this.tempFolder.newFile("large.bin");
+		Files.write(file.toPath(), new byte[10000]);
+		PooledContentsTransformer transformer = new PooledContentsTransformer(new DirectBufferPool(4096, 4096));
+		Message<?> message = transformer.transform(MessageBuilder.withPayload(file).build());
+		assertThat(((ByteBuffer) message.getPayload()).remaining()).isEqualTo(10000);
+		assertThat(StaticMessageHeaderAccessor.getCloseableResource(message)).isNull();
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.claimcheck;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class ClaimCheckTransformerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testSmallContentIsSent() throws Exception {
+		ContentAddressedFileStore store = new ContentAddressedFileStore(this.tempFolder.newFolder("store"));
+		File file = writeFile("small.bin", 100);
+		Message<?> message = new ClaimCheckTransformer(store, 100).transform(MessageBuilder.withPayload(file).build());
+		assertThat((byte[]) message.getPayload()).hasSize(100);
+		assertThat(message.getHeaders()).doesNotContainKey(FileReadingHeaders.CLAIM_CHECK);
+	}
+
+	@Test
+	public void testLargeContentIsClaimChecked() throws Exception {
+		ContentAddressedFileStore store = new ContentAddressedFileStore(this.tempFolder.newFolder("store"));
+		File file = writeFile("large.bin", 200_000);
+		Message<?> message = new ClaimCheckTransformer(store, 100).transform(MessageBuilder.withPayload(file).build());
+		String key = (String) message.getPayload();
+		assertThat(message.getHeaders().get(FileReadingHeaders.CLAIM_CHECK)).isEqualTo(key);
+
+		Message<?> resolved = new ClaimCheckResolver(store).apply(message);
+		byte[] content = (byte[]) resolved.getPayload();
+		assertThat(content).hasSize(200_000);
+		assertThat(content[199_999]).isEqualTo((byte) (199_999 % 251));
+		assertThat(resolved.getHeaders()).doesNotContainKey(FileReadingHeaders.CLAIM_CHECK);
+
+		Message<?> again = new ClaimCheckTransformer(store, 100).transform(MessageBuilder.withPayload(file).build());
+		assertThat(again.getPayload()).isEqualTo(key);
+		assertThat(store.getFile(key).getParentFile().list()).hasSize(1);
+	}
+
+	@Test
+	public void testExpiredContentIsPurged() throws Exception {
+		ContentAddressedFileStore store = new ContentAddressedFileStore(this.tempFolder.newFolder("store"));
+		store.setRetention(Duration.ofHours(1));
+		ClaimCheckTransformer transformer = new ClaimCheckTransformer(store, 100);
+		String expired = (String) transformer.transform(MessageBuilder.withPayload(writeFile("expired.bin", 200)).build())
+				.getPayload();
+		String kept = (String) transformer.transform(MessageBuilder.withPayload(writeFile("kept.bin", 300)).build())
+				.getPayload();
+		FileTime twoHoursAgo = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis());
+		Files.setLastModifiedTime(store.getFile(expired).toPath(), twoHoursAgo);
+		Files.setLastModifiedTime(store.getFile(kept).toPath(), twoHoursAgo);
+
+		// storing a content again starts its retention over
+		assertThat(transformer.transform(MessageBuilder.withPayload(writeFile("kept-again.bin", 300)).build())
+				.getPayload()).isEqualTo(kept);
+		assertThat(store.purge()).isEqualTo(1);
+		assertThat(store.getFile(expired)).doesNotExist();
+		assertThat(store.getFile(kept)).exists();
+	}
+
+	private File writeFile(String name, int size) throws Exception {
+		File file = this.tempFolder.newFile(name);
+		byte[] bytes = new byte[size];
+		for (int i = 0; i < size; i++) {
+			bytes[i] = (byte) (i % 251);
+		}
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(bytes);
+		}
+		return file;
+	}
+
+}
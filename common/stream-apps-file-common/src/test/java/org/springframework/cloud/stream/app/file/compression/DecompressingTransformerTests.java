@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.util.StreamUtils;
+
+/**
+ * @since 3.0
+ */
+public class DecompressingTransformerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testGzipDetectedByMagicBytes() throws Exception {
+		File file = this.tempFolder.newFile("data.bin");
+		try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+			out.write("compressed".getBytes(StandardCharsets.UTF_8));
+		}
+		assertThat(decompress(file, false)).isEqualTo("compressed");
+	}
+
+	@Test
+	public void testBzip2DetectedByExtension() throws Exception {
+		File file = this.tempFolder.newFile("data.txt.bz2");
+		try (OutputStream out = new BZip2CompressorOutputStream(new FileOutputStream(file))) {
+			out.write("compressed".getBytes(StandardCharsets.UTF_8));
+		}
+		assertThat(decompress(file, false)).isEqualTo("compressed");
+	}
+
+	@Test
+	public void testBzip2DetectedByMagicBytes() throws Exception {
+		File file = this.tempFolder.newFile("data.bin");
+		try (OutputStream out = new BZip2CompressorOutputStream(new FileOutputStream(file))) {
+			out.write("compressed".getBytes(StandardCharsets.UTF_8));
+		}
+		assertThat(decompress(file, false)).isEqualTo("compressed");
+	}
+
+	@Test
+	public void testTextStartingWithBzipMagicIsNotDecompressed() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("BZh is not bzip2".getBytes(StandardCharsets.UTF_8));
+		}
+		DecompressingTransformer transformer = new DecompressingTransformer();
+		assertThat(transformer.transform(MessageBuilder.withPayload(file).build()).getPayload()).isSameAs(file);
+		assertThat(CompressionFormat.fromMagic("BZh91AY&SX".getBytes(StandardCharsets.ISO_8859_1), 10)).isNull();
+		assertThat(CompressionFormat.fromMagic("BZh91AY&SY".getBytes(StandardCharsets.ISO_8859_1), 10))
+				.isSameAs(CompressionFormat.BZIP2);
+	}
+
+	@Test
+	public void testUncompressed() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("plain".getBytes(StandardCharsets.UTF_8));
+		}
+		DecompressingTransformer transformer = new DecompressingTransformer();
+		assertThat(transformer.transform(MessageBuilder.withPayload(file).build()).getPayload()).isSameAs(file);
+		assertThat(decompress(file, true)).isEqualTo("plain");
+	}
+
+	private static String decompress(File file, boolean streamUncompressed) throws Exception {
+		DecompressingTransformer transformer = new DecompressingTransformer();
+		transformer.setStreamUncompressed(streamUncompressed);
+		Message<?> message = transformer.transform(MessageBuilder.withPayload(file).build());
+		try (InputStream inputStream = (InputStream) message.getPayload()) {
+			return StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+		}
+	}
+
+}
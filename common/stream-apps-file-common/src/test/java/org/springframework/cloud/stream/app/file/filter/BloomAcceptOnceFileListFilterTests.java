@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+/**
+ * @since 3.0
+ */
+public class BloomAcceptOnceFileListFilterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testAcceptOnceAcrossRestarts() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		SimpleMetadataStore metadataStore = new SimpleMetadataStore();
+		BloomAcceptOnceFileListFilter filter = new BloomAcceptOnceFileListFilter(metadataStore, 1000, 0.001);
+		assertThat(filter.accept(file)).isTrue();
+		assertThat(filter.accept(file)).isFalse();
+
+		BloomAcceptOnceFileListFilter restarted = new BloomAcceptOnceFileListFilter(metadataStore, 1000, 0.001);
+		assertThat(restarted.accept(file)).isFalse();
+
+		Files.write(file.toPath(), "modified".getBytes());
+		assertThat(restarted.accept(file)).isTrue();
+		assertThat(restarted.accept(file)).isFalse();
+
+		assertThat(restarted.remove(file)).isTrue();
+		assertThat(restarted.accept(file)).isTrue();
+	}
+
+	@Test
+	public void testVerifyHits() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		SimpleMetadataStore metadataStore = new SimpleMetadataStore();
+		BloomAcceptOnceFileListFilter unverified = new BloomAcceptOnceFileListFilter(metadataStore, 1000, 0.001);
+		BloomAcceptOnceFileListFilter verified = new BloomAcceptOnceFileListFilter(metadataStore, 1000, 0.001);
+		verified.setVerifyHits(true);
+		assertThat(unverified.accept(file)).isTrue();
+		assertThat(verified.accept(file)).isFalse();
+
+		// as if the Bloom filter hit was a false positive
+		metadataStore.remove("file-processed:" + file.getAbsolutePath());
+		assertThat(unverified.accept(file)).isFalse();
+		assertThat(verified.accept(file)).isTrue();
+	}
+
+	@Test
+	public void testRemovedFileDeletedAndCreatedAgain() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		BloomAcceptOnceFileListFilter filter = new BloomAcceptOnceFileListFilter(new SimpleMetadataStore(), 1000, 0.001);
+		assertThat(filter.accept(file)).isTrue();
+		assertThat(file.delete()).isTrue();
+		assertThat(filter.remove(file)).isTrue();
+
+		Files.write(file.toPath(), "created again".getBytes());
+		assertThat(filter.accept(file)).isTrue();
+		assertThat(filter.accept(file)).isFalse();
+	}
+
+	@Test
+	public void testBloomFilter() {
+		BloomFilter bloomFilter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			bloomFilter.put("entry" + i);
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(bloomFilter.mightContain("entry" + i)).isTrue();
+			if (bloomFilter.mightContain("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(300);
+	}
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.buffer.DirectBufferPool;
+import org.springframework.cloud.stream.app.file.buffer.PooledContentsTransformer;
+import org.springframework.integration.channel.DirectChannel;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.filter.MessageFilter;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessagingException;
+
+/**
+ * @since 3.0
+ */
+public class DuplicateContentMessageSelectorTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testSameContentUnderAnotherNameRejected() throws Exception {
+		File original = write("original.txt", "content");
+		File copy = write("copy.txt", "content");
+		File other = write("other.txt", "other content");
+		SimpleMetadataStore metadataStore = new SimpleMetadataStore();
+		DuplicateContentMessageSelector selector = new DuplicateContentMessageSelector(metadataStore);
+
+		assertThat(selector.accept(MessageBuilder.withPayload(original).build())).isTrue();
+		assertThat(selector.accept(MessageBuilder.withPayload(original).build())).isTrue();
+		assertThat(selector.accept(MessageBuilder.withPayload(copy.getAbsolutePath()).build())).isFalse();
+		assertThat(selector.accept(MessageBuilder.withPayload(other).build())).isTrue();
+		assertThat(metadataStore.get("file-content:"
+				+ "ed7002b439e9ac845f22357d822bac1444730fbdb6016d3ec9432297b9ec9f73"))
+				.isEqualTo(original.getAbsolutePath());
+
+		// another instance sharing the store
+		assertThat(new DuplicateContentMessageSelector(metadataStore)
+				.accept(MessageBuilder.withPayload(copy).build())).isFalse();
+	}
+
+	@Test
+	public void testContentsDigestedInMemory() throws Exception {
+		File original = write("original.txt", "content");
+		File copy = write("copy.txt", "content");
+		DuplicateContentMessageSelector selector = new DuplicateContentMessageSelector(new SimpleMetadataStore());
+
+		assertThat(selector.accept(MessageBuilder.withPayload("content".getBytes(StandardCharsets.UTF_8))
+				.setHeader(FileHeaders.ORIGINAL_FILE, original)
+				.build())).isTrue();
+		// deleted, so it cannot have been read again
+		assertThat(copy.delete()).isTrue();
+		assertThat(selector.accept(MessageBuilder.withPayload(ByteBuffer.wrap("content".getBytes(StandardCharsets.UTF_8)))
+				.setHeader(FileHeaders.ORIGINAL_FILE, copy)
+				.build())).isFalse();
+	}
+
+	@Test
+	public void testPooledBufferOfDuplicateReleased() throws Exception {
+		File original = write("original.txt", "content");
+		File copy = write("copy.txt", "content");
+		DirectBufferPool pool = new DirectBufferPool(1024, 64 * 1024);
+		PooledContentsTransformer transformer = new PooledContentsTransformer(pool);
+		DuplicateContentMessageSelector selector = new DuplicateContentMessageSelector(new SimpleMetadataStore());
+
+		assertThat(selector.accept(transformer.transform(MessageBuilder.withPayload(original).build()))).isTrue();
+		assertThat(pool.getPooledBytes()).isZero();
+		assertThat(selector.accept(transformer.transform(MessageBuilder.withPayload(copy).build()))).isFalse();
+		assertThat(pool.getPooledBytes()).isGreaterThan(0);
+	}
+
+	@Test
+	public void testRecordRemovedOnProcessingFailure() throws Exception {
+		File original = write("original.txt", "content");
+		File copy = write("copy.txt", "content");
+		DuplicateContentMessageSelector selector = new DuplicateContentMessageSelector(new SimpleMetadataStore());
+		DirectChannel output = new DirectChannel();
+		output.addInterceptor(selector.rollbackInterceptor());
+		AtomicBoolean fail = new AtomicBoolean(true);
+		output.subscribe(message -> {
+			if (fail.get()) {
+				throw new IllegalStateException("processing failed");
+			}
+		});
+		MessageFilter filter = new MessageFilter(selector);
+		filter.setOutputChannel(output);
+
+		assertThatExceptionOfType(MessagingException.class)
+				.isThrownBy(() -> filter.handleMessage(MessageBuilder.withPayload(original).build()));
+		fail.set(false);
+		// the failed file no longer blocks a copy of it
+		assertThat(selector.accept(MessageBuilder.withPayload(copy).build())).isTrue();
+		assertThat(selector.accept(MessageBuilder.withPayload(original).build())).isFalse();
+	}
+
+	private File write(String name, String content) throws Exception {
+		File file = this.tempFolder.newFile(name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file.filter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * @since 3.0
+ */
+public class PartitionedFileListFilterTests {
+
+	@Test
+	public void testEachFileOwnedByOneInstance() {
+		PartitionedFileListFilter[] filters = new PartitionedFileListFilter[3];
+		for (int i = 0; i < filters.length; i++) {
+			filters[i] = new PartitionedFileListFilter(i, filters.length);
+		}
+		int[] owned = new int[filters.length];
+		for (int f = 0; f < 3000; f++) {
+			File file = new File("/landing/file" + f + ".csv");
+			int owners = 0;
+			for (int i = 0; i < filters.length; i++) {
+				if (filters[i].accept(file)) {
+					owners++;
+					owned[i]++;
+				}
+			}
+			assertThat(owners).isEqualTo(1);
+		}
+		for (int count : owned) {
+			assertThat(count).isBetween(800, 1200);
+		}
+		// the owner only depends on the file name
+		assertThat(filters[PartitionedFileListFilter.owner("file0.csv", 3)]
+				.accept(new File("/mnt/elsewhere/file0.csv"))).isTrue();
+	}
+
+	@Test
+	public void testScalingOutOnlyMovesFilesToTheNewInstance() {
+		int moved = 0;
+		for (int f = 0; f < 4000; f++) {
+			String name = "file" + f;
+			int before = PartitionedFileListFilter.owner(name, 3);
+			int after = PartitionedFileListFilter.owner(name, 4);
+			if (before != after) {
+				assertThat(after).isEqualTo(3);
+				moved++;
+			}
+		}
+		assertThat(moved).isBetween(800, 1200);
+	}
+
+}
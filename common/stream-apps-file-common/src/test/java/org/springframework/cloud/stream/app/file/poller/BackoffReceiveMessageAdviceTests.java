@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.springframework.cloud.stream.app.file.poller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.integration.util.DynamicPeriodicTrigger;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class BackoffReceiveMessageAdviceTests {
+
+	@Test
+	public void testBackoffWhileIdle() {
+		DynamicPeriodicTrigger trigger = new DynamicPeriodicTrigger(Duration.ofMillis(100));
+		BackoffReceiveMessageAdvice advice = new BackoffReceiveMessageAdvice(trigger);
+		advice.setMinPeriod(Duration.ofMillis(100));
+		advice.setMaxPeriod(Duration.ofMillis(500));
+		Message<?> message = MessageBuilder.withPayload("file").build();
+
+		assertThat(advice.afterReceive(null, this)).isNull();
+		assertThat(trigger.getDuration()).isEqualTo(Duration.ofMillis(200));
+		advice.afterReceive(null, this);
+		assertThat(trigger.getDuration()).isEqualTo(Duration.ofMillis(400));
+		advice.afterReceive(null, this);
+		assertThat(trigger.getDuration()).isEqualTo(Duration.ofMillis(500));
+
+		// a poll of several messages, ended by an empty receive
+		assertThat(advice.afterReceive(message, this)).isSameAs(message);
+		advice.afterReceive(message, this);
+		advice.afterReceive(null, this);
+		assertThat(trigger.getDuration()).isEqualTo(Duration.ofMillis(100));
+		// then an empty poll
+		advice.afterReceive(null, this);
+		assertThat(trigger.getDuration()).isEqualTo(Duration.ofMillis(200));
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.readahead;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.util.StreamUtils;
+
+/**
+ * @since 3.0
+ */
+public class ReadAheadTransformerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testFileLargerThanBuffer() throws Exception {
+		File file = this.tempFolder.newFile("data.bin");
+		byte[] data = new byte[1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		Files.write(file.toPath(), data);
+		ReadAheadTransformer transformer = new ReadAheadTransformer(1, 100);
+		Message<?> message = transformer.transform(MessageBuilder.withPayload(file).build());
+		try (InputStream inputStream = (InputStream) message.getPayload()) {
+			assertThat(StreamUtils.copyToByteArray(inputStream)).isEqualTo(data);
+		}
+		transformer.destroy();
+	}
+
+	@Test
+	public void testBuffersAreBounded() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		Files.write(file.toPath(), "data".getBytes());
+		ReadAheadTransformer transformer = new ReadAheadTransformer(1, 100);
+		Message<?> first = transformer.transform(MessageBuilder.withPayload(file).build());
+		CompletableFuture<Message<?>> second =
+				CompletableFuture.supplyAsync(() -> transformer.transform(MessageBuilder.withPayload(file).build()));
+		Thread.sleep(100);
+		assertThat(second.isDone()).isFalse();
+		Closeable closeable = StaticMessageHeaderAccessor.getCloseableResource(first);
+		closeable.close();
+		try (InputStream inputStream = (InputStream) second.get(10, TimeUnit.SECONDS).getPayload()) {
+			assertThat(StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8)).isEqualTo("data");
+		}
+		transformer.destroy();
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.filter.BloomAcceptOnceFileListFilter;
+import org.springframework.integration.file.filters.AcceptOnceFileListFilter;
+import org.springframework.integration.file.filters.CompositeFileListFilter;
+import org.springframework.integration.file.filters.IgnoreHiddenFileListFilter;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+
+/**
+ * @since 3.0
+ */
+public class StreamingDirectoryScannerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testMaxEntriesPerPoll() throws Exception {
+		File directory = this.tempFolder.newFolder("in");
+		for (int i = 0; i < 5; i++) {
+			new File(directory, "file" + i).createNewFile();
+		}
+		StreamingDirectoryScanner scanner = new StreamingDirectoryScanner();
+		scanner.setMaxEntriesPerPoll(2);
+		scanner.setBatchSize(1);
+		List<File> files = new ArrayList<>(scanner.listFiles(directory));
+		assertThat(files).hasSize(2);
+		files.addAll(scanner.listFiles(directory));
+		files.addAll(scanner.listFiles(directory));
+		assertThat(files).hasSize(5).doesNotHaveDuplicates();
+		assertThat(scanner.listFiles(directory)).isEmpty();
+
+		new File(directory, "file5").createNewFile();
+		scanner.setMaxEntriesPerPoll(0);
+		// the listing in progress completes first, then a new one sees the new entry
+		files = new ArrayList<>(scanner.listFiles(directory));
+		files.addAll(scanner.listFiles(directory));
+		assertThat(files).containsExactly(new File(directory, "file5"));
+	}
+
+	@Test
+	public void testMaxFilesPerPollInSortKeyOrder() throws Exception {
+		File directory = this.tempFolder.newFolder("in");
+		for (int size : new int[] { 3, 1, 4, 0, 5, 2 }) {
+			try (OutputStream out = new FileOutputStream(new File(directory, "file" + size))) {
+				out.write(new byte[size]);
+			}
+		}
+		StreamingDirectoryScanner scanner = new StreamingDirectoryScanner();
+		scanner.setFilter(new AcceptOnceFileListFilter<>());
+		scanner.setBatchSize(2);
+		scanner.setSortKey(File::length);
+		scanner.setMaxFilesPerPoll(4);
+		assertThat(scanner.listFiles(directory)).extracting(File::getName)
+				.containsExactly("file0", "file1", "file2", "file3");
+		// the files left out are rolled back from the filter and accepted again
+		assertThat(scanner.listFiles(directory)).extracting(File::getName)
+				.containsExactly("file4", "file5");
+		assertThat(scanner.listFiles(directory)).isEmpty();
+	}
+
+	@Test
+	public void testMaxFilesPerPollWithMetadataStore() throws Exception {
+		File directory = this.tempFolder.newFolder("in");
+		for (int size = 0; size < 5; size++) {
+			try (OutputStream out = new FileOutputStream(new File(directory, "f" + size))) {
+				out.write(new byte[size]);
+			}
+		}
+		StreamingDirectoryScanner scanner = new StreamingDirectoryScanner();
+		scanner.setFilter(new CompositeFileListFilter<>(Arrays.asList(new IgnoreHiddenFileListFilter(),
+				new BloomAcceptOnceFileListFilter(new SimpleMetadataStore(), 1000, 1e-6))));
+		scanner.setSortKey(File::length);
+		scanner.setMaxFilesPerPoll(2);
+		assertThat(scanner.listFiles(directory)).extracting(File::getName).containsExactly("f0", "f1");
+		assertThat(scanner.listFiles(directory)).extracting(File::getName).containsExactly("f2", "f3");
+		assertThat(scanner.listFiles(directory)).extracting(File::getName).containsExactly("f4");
+		assertThat(scanner.listFiles(directory)).isEmpty();
+	}
+
+	@Test
+	public void testMaxFilesPerPollInDirectoryOrder() throws Exception {
+		File directory = this.tempFolder.newFolder("in");
+		for (int i = 0; i < 5; i++) {
+			new File(directory, "file" + i).createNewFile();
+		}
+		StreamingDirectoryScanner scanner = new StreamingDirectoryScanner();
+		scanner.setFilter(new AcceptOnceFileListFilter<>());
+		scanner.setMaxFilesPerPoll(2);
+		List<File> files = new ArrayList<>(scanner.listFiles(directory));
+		assertThat(files).hasSize(2);
+		files.addAll(scanner.listFiles(directory));
+		assertThat(files).hasSize(4);
+		files.addAll(scanner.listFiles(directory));
+		assertThat(files).hasSize(5).doesNotHaveDuplicates();
+		assertThat(scanner.listFiles(directory)).isEmpty();
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.scanner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @since 3.0
+ */
+public class WatchingDirectoryScannerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testEventsThenReconciliation() throws Exception {
+		File directory = this.tempFolder.newFolder("in");
+		File existing = new File(directory, "existing.txt");
+		existing.createNewFile();
+		WatchingDirectoryScanner scanner = new WatchingDirectoryScanner(directory);
+		scanner.setEventWaitTimeout(Duration.ofSeconds(10));
+		scanner.start();
+		try {
+			assertThat(scanner.listFiles(directory)).containsExactly(existing);
+
+			File created = new File(directory, "created.txt");
+			created.createNewFile();
+			List<File> files = scanner.listFiles(directory);
+			assertThat(files).containsExactly(created);
+		}
+		finally {
+			scanner.stop();
+		}
+		assertThat(scanner.isRunning()).isFalse();
+	}
+
+}
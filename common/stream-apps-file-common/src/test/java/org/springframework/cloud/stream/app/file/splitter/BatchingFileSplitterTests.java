@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+
+/**
+ * @since 3.0
+ */
+public class BatchingFileSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testBatchesByLinesAndBytes() throws Exception {
+		File file = this.tempFolder.newFile("batches.txt");
+		Files.write(file.toPath(), Arrays.asList("a", "b", "c", "longer line", "d", "e"));
+
+		QueueChannel outputChannel = new QueueChannel();
+		BatchingFileSplitter splitter = new BatchingFileSplitter(2, 10, Duration.ofMinutes(1));
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("a", "b"));
+		// the line which would take the batch over 10 bytes starts the next one, alone as larger
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("c"));
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("longer line"));
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("d", "e"));
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+	@Test
+	public void testBatchNeverExceedsMaxBytes() throws Exception {
+		File file = this.tempFolder.newFile("batches.txt");
+		Files.write(file.toPath(), Arrays.asList("abc", "de", "fgh", "ij", "k"));
+
+		QueueChannel outputChannel = new QueueChannel();
+		BatchingFileSplitter splitter = new BatchingFileSplitter(10, 5, Duration.ofMinutes(1));
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("abc", "de"));
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("fgh", "ij"));
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("k"));
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+	@Test
+	public void testMaxBytesCountsEncodedBytes() throws Exception {
+		File file = this.tempFolder.newFile("utf8.txt");
+		// 4 characters, 8 bytes in UTF-8
+		Files.write(file.toPath(), Arrays.asList("\u00e9\u00e9\u00e9\u00e9", "a"), StandardCharsets.UTF_8);
+
+		QueueChannel outputChannel = new QueueChannel();
+		BatchingFileSplitter splitter = new BatchingFileSplitter(10, 8, Duration.ofMinutes(1));
+		splitter.setCharset(StandardCharsets.UTF_8);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("\u00e9\u00e9\u00e9\u00e9"));
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(Arrays.asList("a"));
+		assertThat(BatchingFileSplitter.encodedLength("a\u00e9\u20ac\ud83d\ude00", StandardCharsets.UTF_8))
+				.isEqualTo(10);
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class DelimitedRecordSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testSingleByteDelimiter() throws Exception {
+		assertThat(split(new DelimitedRecordSplitter("\u001e"), "\u001eone\u001etwo\u001e\u001ethree"))
+				.containsExactly("one", "two", "three");
+	}
+
+	@Test
+	public void testMultiByteDelimiterAcrossBuffers() throws Exception {
+		StringBuilder content = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			String record = "<item id=\"" + i + "\">é</item>";
+			expected.add(record.substring(0, record.length() - "</item>".length()));
+			content.append(record).append('\n');
+		}
+		DelimitedRecordSplitter splitter = new DelimitedRecordSplitter("</item>\n");
+		splitter.setCharset(StandardCharsets.UTF_8);
+		assertThat(split(splitter, content.toString())).containsExactlyElementsOf(expected);
+	}
+
+	@Test
+	public void testRecordLargerThanBuffer() throws Exception {
+		char[] chars = new char[200 * 1024];
+		Arrays.fill(chars, 'x');
+		String large = new String(chars);
+		assertThat(split(new DelimitedRecordSplitter("||"), "a||" + large + "||b|"))
+				.containsExactly("a", large, "b|");
+	}
+
+	@Test
+	public void testRegex() throws Exception {
+		assertThat(split(new DelimitedRecordSplitter("\\s*;\\s*", true), "one ; two;;three  "))
+				.containsExactly("one", "two", "three  ");
+	}
+
+	@Test
+	public void testStream() {
+		QueueChannel outputChannel = new QueueChannel();
+		DelimitedRecordSplitter splitter = new DelimitedRecordSplitter(",");
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(new ByteArrayInputStream("a,b".getBytes())).build());
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("a");
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("b");
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+	@Test
+	public void testIndexOf() {
+		Random random = new Random(42);
+		byte[] bytes = new byte[256];
+		random.nextBytes(bytes);
+		ByteBuffer words = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		for (int from = 0; from < 16; from++) {
+			for (int b = -128; b < 128; b++) {
+				assertThat(DelimitedRecordSplitter.indexOf(bytes, words, from, bytes.length - from, (byte) b))
+						.isEqualTo(naiveIndexOf(bytes, from, bytes.length - from, (byte) b));
+			}
+		}
+	}
+
+	private List<Object> split(DelimitedRecordSplitter splitter, String content) throws Exception {
+		File file = this.tempFolder.newFile();
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		QueueChannel outputChannel = new QueueChannel();
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+		List<Object> records = new ArrayList<>();
+		Message<?> message;
+		while ((message = outputChannel.receive(0)) != null) {
+			records.add(message.getPayload());
+		}
+		return records;
+	}
+
+	private static int naiveIndexOf(byte[] bytes, int from, int to, byte b) {
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
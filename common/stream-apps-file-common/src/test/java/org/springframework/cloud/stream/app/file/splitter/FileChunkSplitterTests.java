@@ -0,0 +1,74 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class FileChunkSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testChunks() throws Exception {
+		File file = this.tempFolder.newFile("chunks.bin");
+		byte[] data = new byte[10];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		Files.write(file.toPath(), data);
+
+		QueueChannel outputChannel = new QueueChannel();
+		FileChunkSplitter splitter = new FileChunkSplitter(4);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		Message<?> first = outputChannel.receive(0);
+		assertThat(first.getPayload()).isEqualTo(new byte[] { 0, 1, 2, 3 });
+		assertThat(first.getHeaders().get(FileReadingHeaders.OFFSET)).isEqualTo(0L);
+		assertThat(first.getHeaders().get(FileHeaders.FILENAME)).isEqualTo("chunks.bin");
+		assertThat(first.getHeaders().get(IntegrationMessageHeaderAccessor.SEQUENCE_SIZE)).isEqualTo(3);
+
+		Message<?> second = outputChannel.receive(0);
+		assertThat(second.getPayload()).isEqualTo(new byte[] { 4, 5, 6, 7 });
+		assertThat(second.getHeaders().get(FileReadingHeaders.OFFSET)).isEqualTo(4L);
+
+		Message<?> last = outputChannel.receive(0);
+		assertThat(last.getPayload()).isEqualTo(new byte[] { 8, 9 });
+		assertThat(last.getHeaders().get(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER)).isEqualTo(3);
+
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+}
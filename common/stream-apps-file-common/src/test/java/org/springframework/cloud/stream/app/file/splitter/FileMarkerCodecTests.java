@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.splitter.FileSplitter.FileMarker;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+/**
+ * @since 3.0
+ */
+public class FileMarkerCodecTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testRoundTrip() {
+		FileMarker start = FileMarkerCodec.decode(FileMarkerCodec.encode(
+				new FileMarker("/data/é.txt", FileMarker.Mark.START, 0)));
+		assertThat(start.getMark()).isEqualTo(FileMarker.Mark.START);
+		assertThat(start.getFilePath()).isEqualTo("/data/é.txt");
+		assertThat(start.getLineCount()).isEqualTo(0);
+
+		byte[] encoded = FileMarkerCodec.encode(
+				new FileStatisticsMarker("/data/a.txt", 300, -1, 1_500_000, 2_000_000_000L));
+		assertThat(encoded.length).isLessThan(32);
+		FileStatisticsMarker end = (FileStatisticsMarker) FileMarkerCodec.decode(encoded);
+		assertThat(end.getMark()).isEqualTo(FileMarker.Mark.END);
+		assertThat(end.getLineCount()).isEqualTo(300);
+		assertThat(end.getBytesRead()).isEqualTo(-1);
+		assertThat(end.getDecodeTimeMillis()).isEqualTo(1.5);
+		assertThat(end.getWallTimeMillis()).isEqualTo(2000.0);
+		assertThat(end.getFilePath()).isEqualTo("/data/a.txt");
+	}
+
+	@Test
+	public void testBinaryMarkers() throws Exception {
+		File file = this.tempFolder.newFile("lines.txt");
+		Files.write(file.toPath(), "one\ntwo\n".getBytes(StandardCharsets.UTF_8));
+		QueueChannel outputChannel = new QueueChannel();
+		StatisticsFileSplitter splitter = new StatisticsFileSplitter(false);
+		splitter.setMarkersBinary(true);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		Message<?> start = outputChannel.receive(0);
+		assertThat(start.getHeaders().get(FileHeaders.MARKER)).isEqualTo("START");
+		assertThat(start.getHeaders().get(MessageHeaders.CONTENT_TYPE)).isEqualTo("application/octet-stream");
+		assertThat(FileMarkerCodec.decode((byte[]) start.getPayload()).getFilePath())
+				.isEqualTo(file.getAbsolutePath());
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("one");
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("two");
+		FileMarker end = FileMarkerCodec.decode((byte[]) outputChannel.receive(0).getPayload());
+		assertThat(end).isInstanceOf(FileStatisticsMarker.class);
+		assertThat(end.getLineCount()).isEqualTo(2);
+		assertThat(((FileStatisticsMarker) end).getBytesRead()).isEqualTo(8);
+	}
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.file.splitter.FileSplitter;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+
+/**
+ * @since 3.0
+ */
+public class LineMessageSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testSameHeadersAsFileSplitter() throws Exception {
+		File file = this.tempFolder.newFile("lines.txt");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("one\ntwo\n".getBytes());
+		}
+		Message<File> message = MessageBuilder.withPayload(file)
+				.setHeader(MessageHeaders.CONTENT_TYPE, "text/plain")
+				.build();
+
+		QueueChannel leanOut = new QueueChannel();
+		LineMessageSplitter splitter = new LineMessageSplitter();
+		splitter.setOutputChannel(leanOut);
+		splitter.handleMessage(message);
+
+		QueueChannel out = new QueueChannel();
+		FileSplitter fileSplitter = new FileSplitter(true, false);
+		fileSplitter.setOutputChannel(out);
+		fileSplitter.handleMessage(message);
+
+		for (int i = 1; i <= 2; i++) {
+			Message<?> lean = leanOut.receive(0);
+			Message<?> expected = out.receive(0);
+			assertThat(lean.getPayload()).isEqualTo(expected.getPayload());
+			assertThat(lean.getHeaders().get(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER)).isEqualTo(i);
+			assertThat(withoutIdAndTimestamp(lean.getHeaders())).isEqualTo(withoutIdAndTimestamp(expected.getHeaders()));
+			assertThat(lean.getHeaders().getId()).isNotNull();
+			assertThat(lean.getHeaders().getTimestamp()).isNotNull();
+			assertThat(lean.getHeaders()).isEqualTo(MessageBuilder.fromMessage(lean).build().getHeaders());
+		}
+		assertThat(leanOut.receive(0)).isNull();
+	}
+
+	@Test
+	public void testHeadersSerialization() throws Exception {
+		File file = this.tempFolder.newFile("lines.txt");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("one".getBytes());
+		}
+		QueueChannel leanOut = new QueueChannel();
+		LineMessageSplitter splitter = new LineMessageSplitter();
+		splitter.setOutputChannel(leanOut);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+		MessageHeaders headers = leanOut.receive(0).getHeaders();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(headers);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Object snapshot = in.readObject();
+			assertThat(snapshot).isInstanceOf(MessageHeaders.class);
+			assertThat(new HashMap<>(headers)).isEqualTo(new HashMap<>((MessageHeaders) snapshot));
+		}
+	}
+
+	@Test
+	public void testEqualityConsistentWithMessageHeaders() throws Exception {
+		File file = this.tempFolder.newFile("lines.txt");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("one".getBytes());
+		}
+		QueueChannel leanOut = new QueueChannel();
+		LineMessageSplitter splitter = new LineMessageSplitter();
+		splitter.setOutputChannel(leanOut);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+		MessageHeaders headers = leanOut.receive(0).getHeaders();
+		MessageHeaders copy = new MessageHeaders(headers);
+
+		assertThat(headers.equals(copy)).isEqualTo(copy.equals(headers));
+		assertThat(headers).isEqualTo(headers);
+		assertThat(headers.hashCode()).isEqualTo(new HashMap<>(headers).hashCode());
+		assertThat(headers.entrySet()).hasSize(headers.size());
+		assertThat(headers.keySet()).contains(MessageHeaders.ID, MessageHeaders.TIMESTAMP,
+				IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER);
+		assertThat(headers.containsValue(headers.getId())).isTrue();
+	}
+
+	private static Map<String, Object> withoutIdAndTimestamp(MessageHeaders headers) {
+		Map<String, Object> map = new HashMap<>(headers);
+		map.remove(MessageHeaders.ID);
+		map.remove(MessageHeaders.TIMESTAMP);
+		return map;
+	}
+
+}
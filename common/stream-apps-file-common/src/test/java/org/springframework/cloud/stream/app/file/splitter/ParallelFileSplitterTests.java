@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class ParallelFileSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testLinesInFileOrder() throws Exception {
+		File file = this.tempFolder.newFile("lines.txt");
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			content.append("line").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		content.append("last");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+		QueueChannel outputChannel = new QueueChannel();
+		ParallelFileSplitter splitter = new ParallelFileSplitter(4, 32);
+		splitter.setCharset(StandardCharsets.UTF_8);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		long offset = 0;
+		int previousRange = 0;
+		for (int i = 0; i < 100; i++) {
+			Message<?> line = outputChannel.receive(0);
+			assertThat(line.getPayload()).isEqualTo("line" + i);
+			assertThat(line.getHeaders().get(FileReadingHeaders.OFFSET)).isEqualTo(offset);
+			assertThat(line.getHeaders().get(IntegrationMessageHeaderAccessor.SEQUENCE_NUMBER)).isEqualTo(i + 1);
+			int range = line.getHeaders().get(FileReadingHeaders.RANGE_INDEX, Integer.class);
+			assertThat(range).isBetween(previousRange, previousRange + 1);
+			previousRange = range;
+			offset += ("line" + i).length() + (i % 2 == 0 ? 1 : 2);
+		}
+		assertThat(previousRange).isGreaterThan(0);
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("last");
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+}
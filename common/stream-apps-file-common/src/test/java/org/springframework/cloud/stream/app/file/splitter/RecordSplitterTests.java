@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandlingException;
+
+/**
+ * @since 3.0
+ */
+public class RecordSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testFixedLengthRecords() throws Exception {
+		File file = this.tempFolder.newFile("records.bin");
+		Files.write(file.toPath(), new byte[] { 0, 1, 2, 3, 4, 5 });
+
+		QueueChannel outputChannel = new QueueChannel();
+		FixedLengthRecordSplitter splitter = new FixedLengthRecordSplitter(3);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		Message<?> first = outputChannel.receive(0);
+		assertThat(first.getPayload()).isEqualTo(new byte[] { 0, 1, 2 });
+		assertThat(first.getHeaders().get(IntegrationMessageHeaderAccessor.SEQUENCE_SIZE)).isEqualTo(2);
+		Message<?> second = outputChannel.receive(0);
+		assertThat(second.getPayload()).isEqualTo(new byte[] { 3, 4, 5 });
+		assertThat(second.getHeaders().get(FileReadingHeaders.OFFSET)).isEqualTo(3L);
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+	@Test
+	public void testTruncatedFixedLengthRecord() throws Exception {
+		File file = this.tempFolder.newFile("records.bin");
+		Files.write(file.toPath(), new byte[] { 0, 1, 2, 3 });
+
+		QueueChannel outputChannel = new QueueChannel();
+		FixedLengthRecordSplitter splitter = new FixedLengthRecordSplitter(3);
+		splitter.setOutputChannel(outputChannel);
+		assertThatThrownBy(() -> splitter.handleMessage(MessageBuilder.withPayload(file).build()))
+				.isInstanceOf(MessageHandlingException.class)
+				.hasStackTraceContaining("not a multiple of the record length 3");
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+	@Test
+	public void testTruncatedFixedLengthRecordInStream() throws Exception {
+		QueueChannel outputChannel = new QueueChannel();
+		FixedLengthRecordSplitter splitter = new FixedLengthRecordSplitter(3);
+		splitter.setOutputChannel(outputChannel);
+		InputStream inputStream = new ByteArrayInputStream(new byte[] { 0, 1, 2, 3 });
+		assertThatThrownBy(() -> splitter.handleMessage(MessageBuilder.withPayload(inputStream).build()))
+				.isInstanceOf(MessageHandlingException.class)
+				.hasMessageContaining("offset 3");
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(new byte[] { 0, 1, 2 });
+	}
+
+	@Test
+	public void testLengthPrefixedRecords() throws Exception {
+		File file = this.tempFolder.newFile("records.bin");
+		byte[] large = new byte[100_000];
+		large[99_999] = 42;
+		ByteBuffer data = ByteBuffer.allocate(4 + 3 + 4 + large.length).order(ByteOrder.LITTLE_ENDIAN);
+		data.putInt(3).put(new byte[] { 7, 8, 9 });
+		data.putInt(large.length).put(large);
+		Files.write(file.toPath(), data.array());
+
+		QueueChannel outputChannel = new QueueChannel();
+		LengthPrefixedRecordSplitter splitter = new LengthPrefixedRecordSplitter(4, ByteOrder.LITTLE_ENDIAN);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo(new byte[] { 7, 8, 9 });
+		Message<?> second = outputChannel.receive(0);
+		assertThat((byte[]) second.getPayload()).isEqualTo(large);
+		assertThat(second.getHeaders().get(FileReadingHeaders.OFFSET)).isEqualTo(7L);
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.file.splitter.FileSplitter;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class StatisticsFileSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testEndMarkerStatistics() throws Exception {
+		File file = this.tempFolder.newFile("lines.txt");
+		Files.write(file.toPath(), "one\ntwo\nthree\n".getBytes(StandardCharsets.UTF_8));
+		QueueChannel outputChannel = new QueueChannel();
+		StatisticsFileSplitter splitter = new StatisticsFileSplitter(false);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+
+		Message<?> start = outputChannel.receive(0);
+		assertThat(((FileSplitter.FileMarker) start.getPayload()).getMark()).isEqualTo(FileSplitter.FileMarker.Mark.START);
+		for (int i = 0; i < 3; i++) {
+			assertThat(outputChannel.receive(0).getPayload()).isInstanceOf(String.class);
+		}
+		Message<?> end = outputChannel.receive(0);
+		assertThat(end.getHeaders().get(FileHeaders.MARKER)).isEqualTo("END");
+		FileStatisticsMarker marker = (FileStatisticsMarker) end.getPayload();
+		assertThat(marker.getMark()).isEqualTo(FileSplitter.FileMarker.Mark.END);
+		assertThat(marker.getLineCount()).isEqualTo(3);
+		assertThat(marker.getBytesRead()).isEqualTo(14);
+		assertThat(marker.getWallTimeMillis()).isGreaterThanOrEqualTo(marker.getDecodeTimeMillis());
+		assertThat(marker.getDecodeTimeMillis()).isGreaterThan(0);
+		assertThat(marker.getLinesPerSecond()).isGreaterThan(0);
+		assertThat(outputChannel.receive(0)).isNull();
+	}
+
+	@Test
+	public void testBytesReadFromStream() {
+		QueueChannel outputChannel = new QueueChannel();
+		StatisticsFileSplitter splitter = new StatisticsFileSplitter(false);
+		splitter.setOutputChannel(outputChannel);
+		splitter.handleMessage(MessageBuilder.withPayload(new ByteArrayInputStream("a\nbc\n".getBytes()))
+				.setHeader(FileHeaders.FILENAME, "stream.txt")
+				.build());
+
+		assertThat(outputChannel.receive(0).getPayload()).isInstanceOf(FileSplitter.FileMarker.class);
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("a");
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("bc");
+		FileStatisticsMarker marker = (FileStatisticsMarker) outputChannel.receive(0).getPayload();
+		assertThat(marker.getLineCount()).isEqualTo(2);
+		assertThat(marker.getBytesRead()).isEqualTo(5);
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.splitter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.FileReadingHeaders;
+import org.springframework.integration.channel.QueueChannel;
+import org.springframework.integration.metadata.SimpleMetadataStore;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+
+/**
+ * @since 3.0
+ */
+public class TailingFileSplitterTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testResumeFromStoredOffset() throws Exception {
+		File file = this.tempFolder.newFile("tail.log");
+		Files.write(file.toPath(), "one\ntwo\nthr".getBytes(StandardCharsets.UTF_8));
+
+		SimpleMetadataStore metadataStore = new SimpleMetadataStore();
+		QueueChannel outputChannel = new QueueChannel();
+		TailingFileSplitter splitter = new TailingFileSplitter(metadataStore);
+		splitter.setOutputChannel(outputChannel);
+
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("one");
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("two");
+		assertThat(outputChannel.receive(0)).isNull();
+		assertThat(metadataStore.get("file-offset:" + file.getAbsolutePath())).isEqualTo("8");
+
+		Files.write(file.toPath(), "ee\r\nfour\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		splitter.handleMessage(MessageBuilder.withPayload(file).build());
+		Message<?> three = outputChannel.receive(0);
+		assertThat(three.getPayload()).isEqualTo("three");
+		assertThat(three.getHeaders().get(FileReadingHeaders.OFFSET)).isEqualTo(8L);
+		assertThat(outputChannel.receive(0).getPayload()).isEqualTo("four");
+		assertThat(outputChannel.receive(0)).isNull();
+		assertThat(metadataStore.get("file-offset:" + file.getAbsolutePath())).isEqualTo("20");
+	}
+
+	@Test
+	public void testCharsetWithMultiByteLineFeedRejected() {
+		TailingFileSplitter splitter = new TailingFileSplitter(new SimpleMetadataStore());
+		splitter.setCharset(StandardCharsets.ISO_8859_1);
+		assertThatIllegalArgumentException().isThrownBy(() -> splitter.setCharset(StandardCharsets.UTF_16));
+	}
+
+}
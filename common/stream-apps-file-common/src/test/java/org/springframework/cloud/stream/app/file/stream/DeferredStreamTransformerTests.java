@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.IntegrationMessageHeaderAccessor;
+import org.springframework.integration.StaticMessageHeaderAccessor;
+import org.springframework.integration.file.FileHeaders;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.util.StreamUtils;
+
+/**
+ * @since 3.0
+ */
+public class DeferredStreamTransformerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testOpenedOnReadAndClosedAtEnd() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write("deferred".getBytes(StandardCharsets.UTF_8));
+		}
+		Message<?> message = new DeferredStreamTransformer().transform(MessageBuilder.withPayload(file).build());
+		DeferredFileInputStream inputStream = (DeferredFileInputStream) message.getPayload();
+		assertThat(inputStream.isOpened()).isFalse();
+		assertThat(StaticMessageHeaderAccessor.getCloseableResource(message)).isSameAs(inputStream);
+		assertThat(message.getHeaders().get(FileHeaders.FILENAME)).isEqualTo("data.txt");
+
+		assertThat(StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8)).isEqualTo("deferred");
+		assertThat(inputStream.isOpened()).isTrue();
+		assertThat(inputStream.read()).isEqualTo(-1);
+	}
+
+	@Test
+	public void testClosedBeforeRead() throws Exception {
+		File file = new File(this.tempFolder.getRoot(), "missing.txt");
+		Message<?> message = new DeferredStreamTransformer().transform(MessageBuilder.withPayload(file).build());
+		try (InputStream inputStream = (InputStream) message.getPayload()) {
+			assertThat(((DeferredFileInputStream) inputStream).isOpened()).isFalse();
+		}
+		assertThat(((InputStream) message.getPayload()).read()).isEqualTo(-1);
+	}
+
+	@Test
+	public void testExistingResourceClosedAsWell() throws Exception {
+		File file = this.tempFolder.newFile("data.txt");
+		AtomicBoolean existingClosed = new AtomicBoolean();
+		Closeable existing = () -> existingClosed.set(true);
+		Message<?> message = new DeferredStreamTransformer().transform(MessageBuilder.withPayload(file)
+				.setHeader(IntegrationMessageHeaderAccessor.CLOSEABLE_RESOURCE, existing)
+				.build());
+		StaticMessageHeaderAccessor.getCloseableResource(message).close();
+		assertThat(existingClosed).isTrue();
+		assertThat(((InputStream) message.getPayload()).read()).isEqualTo(-1);
+	}
+
+}
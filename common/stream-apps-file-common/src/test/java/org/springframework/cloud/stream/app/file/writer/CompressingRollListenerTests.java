@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.cloud.stream.app.file.compression.CompressionFormat;
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.util.StreamUtils;
+
+/**
+ * @since 3.0
+ */
+public class CompressingRollListenerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testGzip() throws Exception {
+		assertCompressed(CompressionFormat.GZIP);
+	}
+
+	@Test
+	public void testZstd() throws Exception {
+		assertCompressed(CompressionFormat.ZSTD);
+	}
+
+	private void assertCompressed(CompressionFormat format) throws Exception {
+		File directory = this.tempFolder.newFolder();
+		RollingFileWritingMessageHandler handler = new RollingFileWritingMessageHandler(directory);
+		handler.setRollRecords(2);
+		CompressingRollListener compressor = new CompressingRollListener(format, 2);
+		List<File> compressed = new CopyOnWriteArrayList<>();
+		compressor.addListener(compressed::add);
+		handler.addRollListener(compressor);
+		handler.start();
+		for (int i = 0; i < 5; i++) {
+			handler.handleMessage(MessageBuilder.withPayload("line" + i).build());
+		}
+		// rolls the last file and waits for its compression
+		handler.stop();
+		assertThat(compressor.isRunning()).isFalse();
+
+		assertThat(compressed).hasSize(3);
+		assertThat(directory.list()).hasSize(3).allMatch(name -> name.endsWith(format.getExtension()));
+		StringBuilder content = new StringBuilder();
+		compressed.stream().sorted().forEach(file -> content.append(decompress(format, file)));
+		assertThat(content.toString()).isEqualTo("line0\nline1\nline2\nline3\nline4\n");
+	}
+
+	private static String decompress(CompressionFormat format, File file) {
+		try (InputStream in = format.decompress(Files.newInputStream(file.toPath()))) {
+			return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+		}
+		catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
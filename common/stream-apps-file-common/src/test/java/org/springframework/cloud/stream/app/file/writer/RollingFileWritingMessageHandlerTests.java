@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015-2018 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cloud.stream.app.file.writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.integration.support.MessageBuilder;
+import org.springframework.messaging.MessageHandlingException;
+
+/**
+ * @since 3.0
+ */
+public class RollingFileWritingMessageHandlerTests {
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testRollByRecords() throws Exception {
+		File directory = this.tempFolder.newFolder();
+		RollingFileWritingMessageHandler handler = new RollingFileWritingMessageHandler(directory);
+		handler.setFileNameSuffix(".txt");
+		handler.setRollRecords(2);
+		List<File> rolled = new CopyOnWriteArrayList<>();
+		handler.addRollListener(rolled::add);
+		handler.start();
+		for (String payload : new String[] { "one", "two", "three" }) {
+			handler.handleMessage(MessageBuilder.withPayload(payload).build());
+		}
+		assertThat(rolled).hasSize(1);
+		assertThat(read(rolled.get(0))).isEqualTo("one\ntwo\n");
+		assertThat(rolled.get(0).getName()).startsWith("output-").endsWith(".txt");
+		assertThat(directory.list()).hasSize(2).anyMatch(name -> name.endsWith(".writing"));
+
+		handler.stop();
+		assertThat(rolled).hasSize(2);
+		assertThat(read(rolled.get(1))).isEqualTo("three\n");
+		assertThat(directory.list()).hasSize(2).noneMatch(name -> name.endsWith(".writing"));
+	}
+
+	@Test
+	public void testRollBySizeBinary() throws Exception {
+		File directory = this.tempFolder.newFolder();
+		RollingFileWritingMessageHandler handler = new RollingFileWritingMessageHandler(directory);
+		handler.setRollSize(10);
+		handler.setBufferSize(4);
+		handler.setDelimiter(new byte[0]);
+		List<File> rolled = new CopyOnWriteArrayList<>();
+		handler.addRollListener(rolled::add);
+		handler.handleMessage(MessageBuilder.withPayload("abc".getBytes()).build());
+		handler.handleMessage(MessageBuilder.withPayload("defghijk".getBytes()).build());
+		handler.handleMessage(MessageBuilder.withPayload("l".getBytes()).build());
+		handler.roll();
+		assertThat(rolled).hasSize(2);
+		assertThat(read(rolled.get(0))).isEqualTo("abcdefghijk");
+		assertThat(read(rolled.get(1))).isEqualTo("l");
+	}
+
+	@Test
+	public void testGroupCommitAndRollByTime() throws Exception {
+		File directory = this.tempFolder.newFolder();
+		RollingFileWritingMessageHandler handler = new RollingFileWritingMessageHandler(directory);
+		handler.setFsyncPolicy(FsyncPolicy.groupCommit);
+		handler.setGroupCommitInterval(Duration.ofMillis(5));
+		handler.setRollInterval(Duration.ofMillis(200));
+		List<File> rolled = new CopyOnWriteArrayList<>();
+		handler.addRollListener(rolled::add);
+		handler.start();
+		try {
+			handler.handleMessage(MessageBuilder.withPayload("committed").build());
+			File inProgress = directory.listFiles()[0];
+			waitFor(() -> inProgress.length() == "committed\n".length() || !rolled.isEmpty());
+			waitFor(() -> !rolled.isEmpty());
+			assertThat(read(rolled.get(0))).isEqualTo("committed\n");
+		}
+		finally {
+			handler.stop();
+		}
+		assertThat(rolled).hasSize(1);
+	}
+
+	@Test
+	public void testUnsupportedPayload() throws Exception {
+		RollingFileWritingMessageHandler handler = new RollingFileWritingMessageHandler(this.tempFolder.newFolder());
+		assertThatThrownBy(() -> handler.handleMessage(MessageBuilder.withPayload(42).build()))
+				.isInstanceOf(MessageHandlingException.class)
+				.hasMessageContaining("Unsupported payload type");
+	}
+
+	private static String read(File file) throws Exception {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		for (int i = 0; i < 500 && !condition.getAsBoolean(); i++) {
+			Thread.sleep(10);
+		}
+		assertThat(condition.getAsBoolean()).isTrue();
+	}
+
+}